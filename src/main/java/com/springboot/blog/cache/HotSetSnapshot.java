@@ -0,0 +1,268 @@
+package com.springboot.blog.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.TrendingPostDto;
+import com.springboot.blog.service.PostService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//persists the hottest posts (trending ids and scores, optionally with their rendered response bodies) to a memory-mapped
+//file, and reloads it in the background after a restart to reseed the trending scores and pre-warm the response cache
+//file layout: magic, version, createdAt, count,
+//then per post: id (long), score as of createdAt (double), renderedAt (long), body length (int, -1 = none), body bytes
+@Component
+public class HotSetSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotSetSnapshot.class);
+
+    private static final int MAGIC = 0x424C4753; // "BLGS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    private static final int ENTRY_SIZE = 8 + 8 + 8 + 4;
+
+    private final TrendingPosts trendingPosts;
+    private final PostResponseCache postResponseCache;
+    private final PostService postService;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final Path path;
+    private final int size;
+    private final boolean includeBodies;
+    private final long warmTtlMillis;
+
+    //no saves before the old snapshot is loaded, they would replace it with the few posts seen since the start
+    private volatile boolean warmedUp;
+
+    public HotSetSnapshot(TrendingPosts trendingPosts, PostResponseCache postResponseCache, PostService postService,
+                          ObjectMapper objectMapper,
+                          @Value("${app.hot-set-snapshot.enabled:true}") boolean enabled,
+                          @Value("${app.hot-set-snapshot.path:hot-posts.snapshot}") String path,
+                          @Value("${app.hot-set-snapshot.size:100}") int size,
+                          @Value("${app.hot-set-snapshot.include-bodies:true}") boolean includeBodies,
+                          @Value("${app.hot-set-snapshot.warm-ttl-ms:30000}") long warmTtlMillis) {
+        this.trendingPosts = trendingPosts;
+        this.postResponseCache = postResponseCache;
+        this.postService = postService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.size = size;
+        this.includeBodies = includeBodies;
+        this.warmTtlMillis = warmTtlMillis;
+    }
+
+    //warm up off the request path, the app already serves traffic meanwhile
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpInBackground() {
+        if (!enabled) {
+            return;
+        }
+        if (!Files.exists(path)) {
+            warmedUp = true;
+            return;
+        }
+        Thread warmUp = new Thread(this::warmUp, "hot-set-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+    }
+
+    @Scheduled(initialDelayString = "${app.hot-set-snapshot.interval-ms:60000}",
+            fixedDelayString = "${app.hot-set-snapshot.interval-ms:60000}")
+    public synchronized void save() {
+        if (!enabled || !warmedUp) {
+            return;
+        }
+        List<TrendingPostDto> trending = trendingPosts.getTrending(size);
+        if (trending.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        List<Long> toRender = new ArrayList<>();
+        for (TrendingPostDto post : trending) {
+            PostResponseCache.CachedResponse cached = includeBodies ? postResponseCache.get(post.getPostId()) : null;
+            entries.put(post.getPostId(), cached == null
+                    ? new Entry(post.getPostId(), post.getScore(), now, null)
+                    : new Entry(post.getPostId(), post.getScore(), cached.getRenderedAt(), cached.getIdentity()));
+            if (includeBodies && cached == null) {
+                toRender.add(post.getPostId());
+            }
+        }
+        //the response cache only holds what was read in the last few seconds, render the rest in one batch
+        if (!toRender.isEmpty()) {
+            try {
+                for (PostDto post : postService.getPostsByIds(toRender)) {
+                    Entry entry = entries.get(post.getId());
+                    entries.put(post.getId(), new Entry(post.getId(), entry.score, now, objectMapper.writeValueAsBytes(post)));
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to render the hot set posts, saving them without bodies: {}", e.getMessage());
+            }
+        }
+
+        try {
+            write(path, now, new ArrayList<>(entries.values()));
+        } catch (IOException e) {
+            logger.warn("Failed to write the hot set snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    //the bodies are freshest right before a restart
+    @PreDestroy
+    public void saveOnShutdown() {
+        save();
+    }
+
+    void warmUp() {
+        try {
+            load();
+        } finally {
+            warmedUp = true;
+        }
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        Contents contents;
+        try {
+            contents = read(path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read the hot set snapshot {}: {}", path, e.getMessage());
+            return;
+        }
+
+        //a stored body is served until warmTtlMillis after it was rendered, so never staler than one loaded now,
+        //older ones are re-read from the db
+        int fromSnapshot = 0;
+        List<Long> toLoad = new ArrayList<>();
+        for (Entry entry : contents.entries) {
+            trendingPosts.seed(entry.postId, entry.score, contents.createdAt);
+            long stamp = postResponseCache.stamp(entry.postId);
+            if (entry.body != null
+                    && postResponseCache.put(entry.postId, stamp, entry.body, entry.renderedAt, warmTtlMillis) != null) {
+                fromSnapshot++;
+            } else {
+                toLoad.add(entry.postId);
+            }
+        }
+
+        //one batched query for the rest instead of one per first request
+        int fromDb = 0;
+        if (!toLoad.isEmpty()) {
+            Map<Long, Long> stamps = new HashMap<>();
+            for (long id : toLoad) {
+                stamps.put(id, postResponseCache.stamp(id));
+            }
+            long renderedAt = System.currentTimeMillis();
+            try {
+                for (PostDto post : postService.getPostsByIds(toLoad)) {
+                    postResponseCache.put(post.getId(), stamps.get(post.getId()), objectMapper.writeValueAsBytes(post),
+                            renderedAt, warmTtlMillis);
+                    fromDb++;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to load the hot set posts: {}", e.getMessage());
+            }
+        }
+
+        logger.info("Hot set warm up: {} posts from the snapshot, {} from the db in {} ms",
+                fromSnapshot, fromDb, System.currentTimeMillis() - start);
+    }
+
+    //writes a temp file and moves it over the old snapshot, a crash mid-write never leaves a torn file behind
+    static void write(Path path, long createdAt, List<Entry> entries) throws IOException {
+        long fileSize = HEADER_SIZE;
+        for (Entry entry : entries) {
+            fileSize += ENTRY_SIZE + (entry.body == null ? 0 : entry.body.length);
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(createdAt).putInt(entries.size());
+            for (Entry entry : entries) {
+                buffer.putLong(entry.postId).putDouble(entry.score).putLong(entry.renderedAt);
+                buffer.putInt(entry.body == null ? -1 : entry.body.length);
+                if (entry.body != null) {
+                    buffer.put(entry.body);
+                }
+            }
+            buffer.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("unknown format");
+            }
+            long createdAt = buffer.getLong();
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long postId = buffer.getLong();
+                double score = buffer.getDouble();
+                long renderedAt = buffer.getLong();
+                int length = buffer.getInt();
+                byte[] body = null;
+                if (length >= 0) {
+                    body = new byte[length];
+                    buffer.get(body);
+                }
+                entries.add(new Entry(postId, score, renderedAt, body));
+            }
+            return new Contents(createdAt, entries);
+        }
+    }
+
+    static class Contents {
+        final long createdAt;
+        final List<Entry> entries;
+
+        Contents(long createdAt, List<Entry> entries) {
+            this.createdAt = createdAt;
+            this.entries = entries;
+        }
+    }
+
+    static class Entry {
+        final long postId;
+        final double score;
+        final long renderedAt;
+        final byte[] body;
+
+        Entry(long postId, double score, long renderedAt, byte[] body) {
+            this.postId = postId;
+            this.score = score;
+            this.renderedAt = renderedAt;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.entity.id.TimeOrderedIds;
+import com.springboot.blog.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//in-memory Bloom filter of existing post ids
+//mightContain() == false means the post definitely does not exist, so the caller can skip the db round trip
+//deleted ids are never removed (a Bloom filter can't), they only cost a normal db lookup until the next restart
+//posts created on other nodes are picked up by a periodic keyset scan over the recent ids, and ids newer than
+//the last scan always count as "maybe", so a post of another node is never reported missing
+@Component
+public class PostIdFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostIdFilter.class);
+
+    private final PostRepository postRepository;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final int warmUpChunkSize;
+    private final long refreshMarginMillis;
+
+    //bits are published before the warm up starts, so posts created in the meantime are never lost
+    private volatile AtomicLongArray bits;
+    private volatile long numBits;
+    private volatile int numHashes;
+    private volatile boolean ready;
+
+    //ids created at or after this time (epoch millis) may be missing from the bits
+    private volatile long maybeAfterMillis;
+
+    public PostIdFilter(PostRepository postRepository,
+                        @Value("${app.post-id-filter.expected-insertions:1000000}") long expectedInsertions,
+                        @Value("${app.post-id-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                        @Value("${app.post-id-filter.warm-up-chunk-size:10000}") int warmUpChunkSize,
+                        @Value("${app.post-id-filter.refresh-margin-ms:60000}") long refreshMarginMillis) {
+        this.postRepository = postRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.warmUpChunkSize = warmUpChunkSize;
+        this.refreshMarginMillis = refreshMarginMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+
+        //leave room for twice the current table size, so the false positive rate holds while the blog grows
+        long capacity = Math.max(expectedInsertions, postRepository.count() * 2);
+        allocate(capacity);
+
+        long loaded = load(0);
+
+        maybeAfterMillis = start - refreshMarginMillis;
+        ready = true;
+        logger.info("Post id filter loaded {} ids into {} bits in {} ms", loaded, numBits, System.currentTimeMillis() - start);
+    }
+
+    //rescans the ids since the last refresh (minus the margin, for transactions that committed late)
+    //ids are time-ordered, so this is a short range scan on the primary key
+    @Scheduled(fixedDelayString = "${app.post-id-filter.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        load(TimeOrderedIds.minIdAt(maybeAfterMillis) - 1);
+        maybeAfterMillis = start - refreshMarginMillis;
+    }
+
+    //false -> definitely not in the db, true -> maybe (or the filter is still warming up)
+    public boolean mightContain(long id) {
+        if (!ready) {
+            return true;
+        }
+        //created after the last refresh (possibly on another node) --> can't tell yet
+        //(ids further in the future than the margin can't exist, they fall through to the bits)
+        long createdAt = TimeOrderedIds.timestampOf(id);
+        if (createdAt >= maybeAfterMillis && createdAt <= System.currentTimeMillis() + refreshMarginMillis) {
+            return true;
+        }
+        AtomicLongArray bits = this.bits;
+        long hash1 = mix(id);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < numHashes; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, numBits);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(long id) {
+        AtomicLongArray bits = this.bits;
+        if (bits == null) {
+            return;
+        }
+        long hash1 = mix(id);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < numHashes; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, numBits);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private long load(long afterId) {
+        long lastId = afterId;
+        long loaded = 0;
+        List<Long> ids;
+        do {
+            ids = postRepository.findIdsAfter(lastId, PageRequest.of(0, warmUpChunkSize));
+            for (Long id : ids) {
+                put(id);
+                lastId = id;
+            }
+            loaded += ids.size();
+        } while (ids.size() == warmUpChunkSize);
+        return loaded;
+    }
+
+    private void allocate(long capacity) {
+        //standard Bloom filter sizing: m = -n * ln(p) / ln(2)^2, k = m / n * ln(2)
+        long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) >>> 6);
+        this.numBits = (long) words * 64;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        this.bits = new AtomicLongArray(words);
+    }
+
+    //splitmix64 finalizer, spreads sequential ids over the whole bit array
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,146 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.event.CommentCreatedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.GZIPOutputStream;
+
+//final response bytes of GET /api/posts/{id}, as identity and gzip encoded variants
+//entries live for `ttlMillis` at most, which also bounds how stale the view count in the body gets
+@Component
+public class PostResponseCache {
+
+    private final ConcurrentMap<Long, CachedResponse> responses = new ConcurrentHashMap<>();
+
+    //invalidation versions per post, striped to bound the memory: an invalidation bumps the stripe of its post,
+    //a response rendered before an invalidation of its stripe is never stored (other stripes aren't affected)
+    private static final int STRIPES = 1024;
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    public PostResponseCache(@Value("${app.post-response-cache.max-entries:1000}") int maxEntries,
+                             @Value("${app.post-response-cache.ttl-ms:10000}") long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public CachedResponse get(long postId) {
+        CachedResponse response = responses.get(postId);
+        if (response == null || response.isExpired()) {
+            return null;
+        }
+        return response;
+    }
+
+    //take a stamp before loading the post, hand it to put() with the rendered bytes
+    public long stamp(long postId) {
+        return versions.get(stripe(postId));
+    }
+
+    //returns the response to serve, or null when it can't be stored (invalidated meanwhile, or the cache is full
+    //of live entries), then the caller serves the json as is and nobody pays for a gzip that is thrown away
+    public CachedResponse put(long postId, long stamp, byte[] json) {
+        return put(postId, stamp, json, System.currentTimeMillis(), ttlMillis);
+    }
+
+    //for bodies rendered earlier or elsewhere (e.g. the hot set warm up), the entry expires `ttlMillis` after `renderedAt`
+    public CachedResponse put(long postId, long stamp, byte[] json, long renderedAt, long ttlMillis) {
+        long expiresAt = renderedAt + ttlMillis;
+        if (System.currentTimeMillis() > expiresAt) {
+            return null;
+        }
+        if (responses.size() >= maxEntries) {
+            responses.values().removeIf(CachedResponse::isExpired);
+        }
+        if (stamp != stamp(postId) || responses.size() >= maxEntries) {
+            return null;
+        }
+
+        CachedResponse response = new CachedResponse(json, gzip(json), renderedAt, expiresAt);
+        //checked again after the gzip, an invalidation may have come in meanwhile (the bytes are still fine to serve)
+        if (stamp == stamp(postId)) {
+            responses.put(postId, response);
+        }
+        return response;
+    }
+
+    //drops the post now and once more after the current transaction commits,
+    //so a concurrent reader can't put back what it read before the commit
+    public void invalidate(long postId) {
+        versions.incrementAndGet(stripe(postId));
+        responses.remove(postId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.incrementAndGet(stripe(postId));
+                    responses.remove(postId);
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onCommentCreated(CommentCreatedEvent event) {
+        invalidate(event.getPostId());
+    }
+
+    //fibonacci hashing, the time-ordered ids differ mostly in their low bits
+    private static int stripe(long postId) {
+        return (int) ((postId * 0x9E3779B97F4A7C15L) >>> 54);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        //tiny bodies grow when gzipped, serve those as they are
+        return bytes.size() < json.length ? bytes.toByteArray() : null;
+    }
+
+    public static class CachedResponse {
+        private final byte[] identity;
+        private final byte[] gzip;
+        private final long renderedAt;
+        private final long expiresAt;
+
+        CachedResponse(byte[] identity, byte[] gzip, long renderedAt, long expiresAt) {
+            this.identity = identity;
+            this.gzip = gzip;
+            this.renderedAt = renderedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public byte[] getIdentity() {
+            return identity;
+        }
+
+        //null when gzip doesn't make the body smaller
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public long getRenderedAt() {
+            return renderedAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
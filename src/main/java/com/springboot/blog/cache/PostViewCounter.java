@@ -0,0 +1,110 @@
+package com.springboot.blog.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//counts post views in memory (striped LongAdder per post) and flushes the deltas to the db in jdbc batches
+//a crash loses at most the views of one flush interval
+@Component
+public class PostViewCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostViewCounter.class);
+
+    private final ConcurrentMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public PostViewCounter(JdbcTemplate jdbcTemplate,
+                           @Value("${app.post-views.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public void increment(long postId) {
+        increment(postId, 1);
+    }
+
+    //views counted in memory that are not in the db yet
+    public long getPending(long postId) {
+        Counter counter = counters.get(postId);
+        return counter == null ? 0 : counter.pending();
+    }
+
+    //posts with a counter in memory, idle ones are dropped by the flush
+    public int getTrackedPostCount() {
+        return counters.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.post-views.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long delta = counter.pending();
+            if (delta > 0) {
+                counter.flushed += delta;
+                updates.add(new Object[]{delta, entry.getKey()});
+            } else if (counters.remove(entry.getKey(), counter)) {
+                //idle post --> drop its counter, carrying over views that raced with the removal
+                long leftover = counter.pending();
+                if (leftover > 0) {
+                    increment(entry.getKey(), leftover);
+                }
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("update posts set views = views + ? where id = ?", updates, batchSize,
+                    (ps, update) -> {
+                        ps.setLong(1, (Long) update[0]);
+                        ps.setLong(2, (Long) update[1]);
+                    });
+        } catch (RuntimeException e) {
+            //put the deltas back, the next flush retries them
+            for (Object[] update : updates) {
+                increment((Long) update[1], (Long) update[0]);
+            }
+            logger.warn("Failed to flush {} post view counters: {}", updates.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void increment(long postId, long views) {
+        Counter counter = counters.get(postId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(postId, key -> new Counter());
+        }
+        counter.views.add(views);
+    }
+
+    //views never get reset (reset races with concurrent adds), the flusher tracks what it already wrote
+    private static class Counter {
+        private final LongAdder views = new LongAdder();
+        //only written by the (synchronized) flusher
+        private volatile long flushed;
+
+        long pending() {
+            return views.sum() - flushed;
+        }
+    }
+}
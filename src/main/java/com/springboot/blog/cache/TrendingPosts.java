@@ -0,0 +1,190 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.event.CommentCreatedEvent;
+import com.springboot.blog.payload.TrendingPostDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//"hot right now" posts: a time decayed activity score per post plus an incrementally maintained top K
+//uses forward decay --> an event at time t adds weight * 2^((t - landmark) / halfLife), so stored scores only
+//ever grow and never have to be decayed one by one. That also means a post can only enter the top K when its
+//own score changes, which keeps the top K exact with O(log K) work per event.
+@Component
+public class TrendingPosts {
+
+    private final double commentWeight;
+    private final double viewWeight;
+    private final double halfLifeMillis;
+    private final int capacity;
+    private final double pruneBelow;
+
+    //landmark, scores and top K are swapped together when rebasing, updates racing with a rebase may be lost
+    private volatile State state;
+
+    public TrendingPosts(@Value("${app.trending.comment-weight:5}") double commentWeight,
+                         @Value("${app.trending.view-weight:1}") double viewWeight,
+                         @Value("${app.trending.half-life-ms:3600000}") long halfLifeMillis,
+                         @Value("${app.trending.capacity:100}") int capacity,
+                         @Value("${app.trending.prune-below:0.01}") double pruneBelow) {
+        this.commentWeight = commentWeight;
+        this.viewWeight = viewWeight;
+        this.halfLifeMillis = halfLifeMillis;
+        this.capacity = capacity;
+        this.pruneBelow = pruneBelow;
+        this.state = new State(System.currentTimeMillis(), capacity);
+    }
+
+    public void recordView(long postId) {
+        record(postId, viewWeight);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentCreated(CommentCreatedEvent event) {
+        record(event.getPostId(), commentWeight);
+    }
+
+    //adds back a score taken at `asOf` (e.g. before a restart), it decays from then on like any other activity
+    public void seed(long postId, double score, long asOf) {
+        State state = this.state;
+        double increment = score / decayFactor(state.landmark, asOf);
+        double seeded = state.scores.merge(postId, increment, Double::sum);
+        state.topK.offer(postId, seeded);
+    }
+
+    public void remove(long postId) {
+        State state = this.state;
+        state.scores.remove(postId);
+        state.topK.remove(postId);
+    }
+
+    //the current top posts (at most capacity of them), scores are expressed as of now
+    public List<TrendingPostDto> getTrending(int limit) {
+        limit = Math.min(limit, capacity);
+        State state = this.state;
+        double scale = decayFactor(state.landmark, System.currentTimeMillis());
+        List<TrendingPostDto> trending = new ArrayList<>();
+        for (TopK.Entry entry : state.topK.snapshot()) {
+            if (trending.size() >= limit) {
+                break;
+            }
+            trending.add(new TrendingPostDto(entry.postId, entry.score * scale));
+        }
+        return trending;
+    }
+
+    //moves the landmark to now so the forward decayed scores stay small, and drops posts that went cold
+    @Scheduled(fixedDelayString = "${app.trending.rebase-interval-ms:600000}")
+    public void rebase() {
+        State old = this.state;
+        long now = System.currentTimeMillis();
+        double scale = decayFactor(old.landmark, now);
+
+        State rebased = new State(now, capacity);
+        old.scores.forEach((postId, score) -> {
+            double decayed = score * scale;
+            if (decayed >= pruneBelow) {
+                rebased.scores.put(postId, decayed);
+                rebased.topK.offer(postId, decayed);
+            }
+        });
+        this.state = rebased;
+    }
+
+    private void record(long postId, double weight) {
+        State state = this.state;
+        double increment = weight / decayFactor(state.landmark, System.currentTimeMillis());
+        double score = state.scores.merge(postId, increment, Double::sum);
+        state.topK.offer(postId, score);
+    }
+
+    //how much a score from `from` is worth at `to`
+    private double decayFactor(long from, long to) {
+        return Math.pow(2, -(to - from) / halfLifeMillis);
+    }
+
+    private static class State {
+        private final long landmark;
+        private final ConcurrentMap<Long, Double> scores = new ConcurrentHashMap<>();
+        private final TopK topK;
+
+        State(long landmark, int capacity) {
+            this.landmark = landmark;
+            this.topK = new TopK(capacity);
+        }
+    }
+
+    //bounded top K by score, the volatile threshold keeps most offers off the lock
+    private static class TopK {
+
+        private static final Comparator<Entry> ORDER = Comparator.comparingDouble((Entry e) -> e.score).reversed()
+                .thenComparingLong(e -> e.postId);
+
+        private final int capacity;
+        private final TreeSet<Entry> entries = new TreeSet<>(ORDER);
+        private final Map<Long, Entry> byPostId = new HashMap<>();
+        private volatile double threshold = Double.NEGATIVE_INFINITY;
+
+        TopK(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void offer(long postId, double score) {
+            if (score <= threshold) {
+                return;
+            }
+            synchronized (this) {
+                Entry old = byPostId.remove(postId);
+                if (old != null) {
+                    //scores of concurrent offers may arrive out of order, keep the highest
+                    if (old.score >= score) {
+                        byPostId.put(postId, old);
+                        return;
+                    }
+                    entries.remove(old);
+                }
+                Entry entry = new Entry(postId, score);
+                entries.add(entry);
+                byPostId.put(postId, entry);
+                if (entries.size() > capacity) {
+                    byPostId.remove(entries.pollLast().postId);
+                }
+                if (entries.size() == capacity) {
+                    threshold = entries.last().score;
+                }
+            }
+        }
+
+        synchronized void remove(long postId) {
+            Entry entry = byPostId.remove(postId);
+            if (entry != null) {
+                entries.remove(entry);
+                threshold = Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        synchronized List<Entry> snapshot() {
+            return new ArrayList<>(entries);
+        }
+
+        private static class Entry {
+            private final long postId;
+            private final double score;
+
+            Entry(long postId, double score) {
+                this.postId = postId;
+                this.score = score;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.springboot.blog.config;
+
+import com.springboot.blog.monitoring.TimedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+//primary (spring.datasource.*) + optional read replica (app.datasource.replica.*) behind a routing DataSource
+//without a replica url every transaction goes to the primary, as before
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    //same driver and credentials as the primary unless overridden
+    @Bean
+    @ConditionalOnProperty(name = "app.datasource.replica.url")
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:}") String username,
+                                              @Value("${app.datasource.replica.password:}") String password) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setDriverClassName(properties.determineDriverClassName());
+        replica.setJdbcUrl(url);
+        replica.setUsername(username.isEmpty() ? properties.determineUsername() : username);
+        replica.setPassword(password.isEmpty() ? properties.determinePassword() : password);
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                                       @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaDataSource,
+                                                       @Value("${app.datasource.replica.max-lag-ms:5000}") long maxReplicaLagMillis) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadWriteRoutingDataSource.Route.PRIMARY, primaryDataSource);
+        targets.put(ReadWriteRoutingDataSource.Route.REPLICA, replicaDataSource.getIfAvailable(() -> primaryDataSource));
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(maxReplicaLagMillis);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        return routingDataSource;
+    }
+
+    //the physical connection is only fetched at the first statement, once the transaction's read-only flag is known
+    //the timing wrapper adds the jdbc time of each request to its Server-Timing header
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource,
+                                 @Value("${app.server-timing.enabled:true}") boolean serverTimingEnabled) {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        return serverTimingEnabled ? new TimedDataSource(dataSource) : dataSource;
+    }
+}
@@ -0,0 +1,73 @@
+package com.springboot.blog.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//sends read-only transactions to the replica pool and everything else to the primary
+//read-your-writes: a user who committed a write in the last `maxReplicaLagMillis` keeps reading from the primary,
+//so they never see the replica lagging behind their own change
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final long maxReplicaLagMillis;
+
+    //user name -> time of the last committed write
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(long maxReplicaLagMillis) {
+        this.maxReplicaLagMillis = maxReplicaLagMillis;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWriteOnCommit();
+            return Route.PRIMARY;
+        }
+        return wroteRecently(currentUser()) ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    //drops the users whose writes are old enough for the replica to have caught up
+    @Scheduled(fixedDelayString = "${app.datasource.replica.max-lag-ms:5000}")
+    public void evictExpiredWrites() {
+        long oldest = System.currentTimeMillis() - maxReplicaLagMillis;
+        lastWrites.values().removeIf(time -> time < oldest);
+    }
+
+    private void recordWriteOnCommit() {
+        String user = currentUser();
+        if (user == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWrites.put(user, System.currentTimeMillis());
+            }
+        });
+    }
+
+    private boolean wroteRecently(String user) {
+        if (user == null) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get(user);
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < maxReplicaLagMillis;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !authentication.isAuthenticated() ? null : authentication.getName();
+    }
+}
@@ -1,5 +1,6 @@
 package com.springboot.blog.config;
 
+import com.springboot.blog.monitoring.RequestTimings;
 import com.springboot.blog.security.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -26,9 +27,20 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     private CustomUserDetailsService userDetailsService;
 
     //create a Bean to encrypt our password
+    //BCrypt checks are reported as the auth phase of the request's Server-Timing
     @Bean
     PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder() {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                RequestTimings.start(RequestTimings.Phase.AUTH);
+                try {
+                    return super.matches(rawPassword, encodedPassword);
+                } finally {
+                    RequestTimings.stop();
+                }
+            }
+        };
     }
 
     @Override
@@ -36,6 +48,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         http
                 .csrf().disable() //disables csrf token
                 .authorizeRequests() //authorize all requests
+                .antMatchers("/api/admin/**").hasRole("ADMIN") //admin endpoints, GET included
                 .antMatchers(HttpMethod.GET, "/api/**").permitAll()
                 .anyRequest() //authorize any requests
                 .authenticated()
@@ -0,0 +1,83 @@
+package com.springboot.blog.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springboot.blog.monitoring.RequestTimings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+@Configuration
+public class ServerTimingConfig implements WebMvcConfigurer {
+
+    //replaces Spring Boot's default JSON converter, so Jackson time is reported as the serialization phase
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                timed(() -> super.writeInternal(object, type, outputMessage));
+            }
+        };
+    }
+
+    //Spring MVC registers Smile (application/x-jackson-smile) and CBOR (application/cbor) converters after the JSON one
+    //when the jackson dataformats are on the classpath, these beans take their place: same spot in the list,
+    //but with Spring Boot's Jackson settings and timed like JSON
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter mappingJackson2SmileHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                timed(() -> super.writeInternal(object, type, outputMessage));
+            }
+        };
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter mappingJackson2CborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                timed(() -> super.writeInternal(object, type, outputMessage));
+            }
+        };
+    }
+
+    //the converters above stay subclasses of their Jackson types (Spring MVC checks them for @JsonView and friends),
+    //each one only routes its write through here
+    private static void timed(Write write) throws IOException {
+        RequestTimings.start(RequestTimings.Phase.SERIALIZATION);
+        try {
+            write.run();
+        } finally {
+            RequestTimings.stop();
+        }
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    //Spring Boot puts the converter beans above in front of the defaults of the same type, but keeps the defaults
+    //further down the list where they are never picked, drop them
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter.getClass() == MappingJackson2HttpMessageConverter.class
+                || converter.getClass() == MappingJackson2SmileHttpMessageConverter.class
+                || converter.getClass() == MappingJackson2CborHttpMessageConverter.class);
+    }
+}
@@ -0,0 +1,34 @@
+package com.springboot.blog.controller;
+
+import com.springboot.blog.payload.ChangeFeedResponse;
+import com.springboot.blog.service.ChangeFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.springboot.blog.utils.AppConstants.DEFAULT_CHANGE_FEED_LIMIT;
+
+//incremental sync for downstream consumers (search indexer, CDN purger, mobile sync)
+//a deleted post stands for the deletion of all its comments, they don't get their own entries
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    public ChangeController(ChangeFeedService changeFeedService) {
+        this.changeFeedService = changeFeedService;
+    }
+
+    //creates, updates and deletes after the token, in commit-safe order
+    @GetMapping
+    public ChangeFeedResponse getChanges(
+            @RequestParam(value = "since", defaultValue = "0", required = false) long since,
+            @RequestParam(value = "limit", defaultValue = DEFAULT_CHANGE_FEED_LIMIT, required = false) int limit
+    ) {
+        return changeFeedService.getChanges(since, limit);
+    }
+}
@@ -2,30 +2,38 @@ package com.springboot.blog.controller;
 
 import com.springboot.blog.payload.CommentDto;
 import com.springboot.blog.service.CommentService;
+import com.springboot.blog.service.CommentStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
 public class CommentController {
 
     private CommentService commentService;
+    private CommentStreamService commentStreamService;
 
     @Autowired  //(most of the time use @Autowired, when you have more than one constructor)
-    public CommentController(CommentService commentService) {
+    public CommentController(CommentService commentService, CommentStreamService commentStreamService) {
         this.commentService = commentService;
+        this.commentStreamService = commentStreamService;
     }
 
     //create a new comment
     @PostMapping("/posts/{postId}/comments")
-    public ResponseEntity<CommentDto> createComment(@PathVariable(value = "postId") long postId,
-                                                    @Valid @RequestBody CommentDto commentDto) {
-        return new ResponseEntity<>(commentService.createComment(postId, commentDto), HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<CommentDto>> createComment(@PathVariable(value = "postId") long postId,
+                                                                       @Valid @RequestBody CommentDto commentDto) {
+        //completes once the comment is committed (right away, or with its write-behind batch)
+        return commentService.createCommentAsync(postId, commentDto)
+                .thenApply(comment -> new ResponseEntity<>(comment, HttpStatus.CREATED));
     }
 
     //get comments based a particular postId
@@ -35,6 +43,12 @@ public class CommentController {
         return commentService.getCommentsByPostId(postId);
     }
 
+    //stream the comments created on a post from now on (Server-Sent Events)
+    @GetMapping(value = "/posts/{postId}/comments/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamComments(@PathVariable(value = "postId") long postId) {
+        return commentStreamService.subscribe(postId);
+    }
+
     //get a comment with a given commentId
     @GetMapping("/posts/{postId}/comments/{commentId}")
     public ResponseEntity<CommentDto> getCommentById(@PathVariable(value = "postId") long postId,
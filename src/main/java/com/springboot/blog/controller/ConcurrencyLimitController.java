@@ -0,0 +1,40 @@
+package com.springboot.blog.controller;
+
+import com.springboot.blog.limit.ConcurrencyLimits;
+import com.springboot.blog.limit.VegasLimit;
+import com.springboot.blog.payload.ConcurrencyLimitStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//current state of the adaptive concurrency limits (ADMIN only)
+@PreAuthorize("hasRole('ADMIN')")
+@RestController
+@RequestMapping("/api/admin/concurrency-limits")
+public class ConcurrencyLimitController {
+
+    private ConcurrencyLimits limits;
+
+    @Autowired
+    public ConcurrencyLimitController(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    //limit, inflight requests and rejections, for reads and writes
+    @GetMapping
+    public Map<String, ConcurrencyLimitStats> getConcurrencyLimits() {
+        Map<String, ConcurrencyLimitStats> stats = new LinkedHashMap<>();
+        stats.put("read", toStats(limits.getReadLimit()));
+        stats.put("write", toStats(limits.getWriteLimit()));
+        return stats;
+    }
+
+    private ConcurrencyLimitStats toStats(VegasLimit limit) {
+        return new ConcurrencyLimitStats(limit.getLimit(), limit.getInflight(), limit.getRejected(), limit.getMinRttMillis());
+    }
+}
@@ -1,15 +1,24 @@
 package com.springboot.blog.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.cache.PostResponseCache;
+import com.springboot.blog.monitoring.RequestTimings;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.TrendingPostDto;
 import com.springboot.blog.service.PostService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.List;
+import java.util.Locale;
 
 import static com.springboot.blog.utils.AppConstants.*;
 
@@ -18,10 +27,14 @@ import static com.springboot.blog.utils.AppConstants.*;
 public class PostController {
 
     private PostService postService;
+    private PostResponseCache postResponseCache;
+    private ObjectMapper objectMapper;
 
     @Autowired // --> if something goes wrong, check here
-    public PostController(PostService postService) {
+    public PostController(PostService postService, PostResponseCache postResponseCache, ObjectMapper objectMapper) {
         this.postService = postService;
+        this.postResponseCache = postResponseCache;
+        this.objectMapper = objectMapper;
     }
 
     //create a blog post
@@ -42,10 +55,54 @@ public class PostController {
         return postService.getAllPosts(pageNo, pageSize, sortBy, sortDir);
     }
 
+    //get the posts with the most recent activity (comments and reads)
+    @GetMapping("/trending")
+    public List<TrendingPostDto> getTrendingPosts(
+            @RequestParam(value = "limit", defaultValue = DEFAULT_TRENDING_LIMIT, required = false) int limit
+    ) {
+        return postService.getTrendingPosts(limit);
+    }
+
     //get post by id
     @GetMapping("/{id}")
-    public ResponseEntity<PostDto> getPostById(@PathVariable(name = "id") long id){
-        return ResponseEntity.ok(postService.getPostById(id));
+    //JSON is served from the pre-serialized (and pre-gzipped) response cache when possible,
+    //other formats (Smile, CBOR) go through the regular content negotiation
+    public ResponseEntity<?> getPostById(@PathVariable(name = "id") long id,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws JsonProcessingException {
+        if (!acceptsJson(accept)) {
+            return ResponseEntity.ok(postService.getPostById(id));
+        }
+
+        PostResponseCache.CachedResponse response = postResponseCache.get(id);
+        if (response != null) {
+            postService.recordPostView(id);
+        } else {
+            long stamp = postResponseCache.stamp(id);
+            PostDto post = postService.getPostById(id);
+            byte[] json;
+            RequestTimings.start(RequestTimings.Phase.SERIALIZATION);
+            try {
+                json = objectMapper.writeValueAsBytes(post);
+            } finally {
+                RequestTimings.stop();
+            }
+            response = postResponseCache.put(id, stamp, json);
+            if (response == null) {
+                //not cacheable right now, serve the plain json
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).body(json);
+            }
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (response.getGzip() != null && acceptsGzip(acceptEncoding)) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.getGzip());
+        }
+        return builder.body(response.getIdentity());
     }
 
     //update a post by id
@@ -63,4 +120,55 @@ public class PostController {
         postService.deletePostById(id);
         return new ResponseEntity<>("Post entity deleted successfully", HttpStatus.OK);
     }
+
+    //bulk delete posts (and their comments) by id
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<String> deletePosts(@RequestBody List<Long> ids) {
+        int deleted = postService.deletePostsByIds(ids);
+        return new ResponseEntity<>(deleted + " post entities deleted successfully", HttpStatus.OK);
+    }
+
+    private static boolean acceptsJson(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return true;
+        }
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //gzip is acceptable when it is listed (or covered by *) with a q-value above 0, e.g. "br, gzip;q=0.5"
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (name.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        double quality = gzipQuality != null ? gzipQuality : wildcardQuality != null ? wildcardQuality : 0;
+        return quality > 0;
+    }
 }
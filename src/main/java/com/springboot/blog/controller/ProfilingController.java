@@ -0,0 +1,64 @@
+package com.springboot.blog.controller;
+
+import com.springboot.blog.monitoring.FlightRecorderProfiler;
+import com.springboot.blog.payload.ProfileSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+import static com.springboot.blog.utils.AppConstants.DEFAULT_PROFILING_DURATION_SECONDS;
+
+//on-demand flight recordings for production diagnostics (ADMIN only)
+@PreAuthorize("hasRole('ADMIN')")
+@RestController
+@RequestMapping("/api/admin/profiling")
+public class ProfilingController {
+
+    private FlightRecorderProfiler profiler;
+
+    @Autowired
+    public ProfilingController(FlightRecorderProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    //start a recording, it stops by itself after durationSeconds
+    @PostMapping("/recordings")
+    public ResponseEntity<String> startRecording(
+            @RequestParam(value = "durationSeconds", defaultValue = DEFAULT_PROFILING_DURATION_SECONDS, required = false) long durationSeconds
+    ) throws IOException, ParseException {
+        return new ResponseEntity<>(profiler.start(durationSeconds), HttpStatus.ACCEPTED);
+    }
+
+    //list the recordings of this node
+    @GetMapping("/recordings")
+    public List<String> getRecordings() {
+        return profiler.list();
+    }
+
+    //download the .jfr file of a finished recording
+    @GetMapping("/recordings/{name}")
+    public ResponseEntity<Resource> downloadRecording(@PathVariable(name = "name") String name) {
+        Path file = profiler.getFile(name);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(new FileSystemResource(file));
+    }
+
+    //top CPU and allocation hotspots and the slowest service/repository calls of a finished recording
+    @GetMapping("/recordings/{name}/summary")
+    public ProfileSummary getSummary(@PathVariable(name = "name") String name) throws IOException {
+        return profiler.summarize(name);
+    }
+}
@@ -0,0 +1,57 @@
+package com.springboot.blog.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.Date;
+
+//one row per create/update/delete of a post or comment, written in the same transaction as the change
+//seq is the change feed token: consumers read the rows after their last seq through the primary key
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "change_log",
+        //used by the retention purge
+        indexes = {@Index(name = "idx_change_log_changed_at", columnList = "changed_at")}
+)
+public class ChangeLogEntry {
+
+    public enum EntityType {POST, COMMENT}
+
+    public enum Operation {CREATE, UPDATE, DELETE}
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 10)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private long entityId;
+
+    //the post of a comment, the post itself for a post
+    @Column(name = "post_id", nullable = false)
+    private long postId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation", nullable = false, length = 10)
+    private Operation operation;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "changed_at", nullable = false)
+    private Date changedAt;
+
+    public ChangeLogEntry(EntityType entityType, long entityId, long postId, Operation operation, Date changedAt) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.postId = postId;
+        this.operation = operation;
+        this.changedAt = changedAt;
+    }
+}
@@ -1,8 +1,13 @@
 package com.springboot.blog.entity;
 
+import com.springboot.blog.entity.converter.PostContentConverter;
+import com.springboot.blog.entity.id.TimeOrderedIdGenerator;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -13,12 +18,18 @@ import java.util.Set;
 @Setter
 @Entity
 @Table(
-        name = "posts", uniqueConstraints = {@UniqueConstraint(columnNames = {"title"})}
+        name = "posts", uniqueConstraints = {@UniqueConstraint(columnNames = {"title"})},
+        //one index per sortable field (see AppConstants.POST_SORT_FIELDS), id breaks the ties
+        indexes = {
+                @Index(name = "idx_posts_title_id", columnList = "title, id"),
+                @Index(name = "idx_posts_views_id", columnList = "views, id")
+        }
 )
 public class Post {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
+    @GenericGenerator(name = TimeOrderedIdGenerator.NAME, strategy = TimeOrderedIdGenerator.STRATEGY)
     private Long id;
 
     @Column(name = "title", nullable = false)
@@ -28,8 +39,19 @@ public class Post {
     private  String description;
 
     @Column(name = "content", nullable = false)
+    @Convert(converter = PostContentConverter.class)
     private String content;
 
+    //only ever incremented by PostViewCounter's batched updates, never by an entity save
+    @Column(name = "views", nullable = false, updatable = false)
+    private long views;
+
+    //set by hibernate on insert and on every entity update, deletes are tracked in the change log
+    @UpdateTimestamp
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "updated_at")
+    private Date updatedAt;
+
     //create the 1:M relationship
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Comment> comments = new HashSet<>();
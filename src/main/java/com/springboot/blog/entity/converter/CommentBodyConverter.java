@@ -0,0 +1,27 @@
+package com.springboot.blog.entity.converter;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+//stores Comment.body compressed once it reaches the threshold (opt-in: app.compression.comment-body)
+@Converter
+public class CommentBodyConverter implements AttributeConverter<String, String> {
+
+    @Value("${app.compression.comment-body:false}")
+    private boolean enabled;
+
+    @Value("${app.compression.threshold:1024}")
+    private int threshold;
+
+    @Override
+    public String convertToDatabaseColumn(String body) {
+        return CompressedText.toColumn(body, enabled, threshold);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String stored) {
+        return CompressedText.decode(stored);
+    }
+}
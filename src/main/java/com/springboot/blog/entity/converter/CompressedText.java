@@ -0,0 +1,76 @@
+package com.springboot.blog.entity.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//text column format for compressed values: MARKER + base64(deflate(utf-8 bytes))
+//values without the marker are plain text, so old and new rows can live side by side
+public final class CompressedText {
+
+    public static final String MARKER = "\u0001z1:";
+
+    private CompressedText() {
+    }
+
+    public static boolean isEncoded(String stored) {
+        return stored != null && stored.startsWith(MARKER);
+    }
+
+    //what a converter writes: compressed when enabled and long enough, plain otherwise
+    //plain text that happens to start with the marker is always encoded, so it can't be mistaken for compressed data
+    public static String toColumn(String value, boolean enabled, int threshold) {
+        if (value == null) {
+            return null;
+        }
+        if ((enabled && value.length() >= threshold) || isEncoded(value)) {
+            return encode(value);
+        }
+        return value;
+    }
+
+    public static String encode(String plain) {
+        byte[] input = plain.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return MARKER + Base64.getEncoder().encodeToString(output.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decode(String stored) {
+        if (!isEncoded(stored)) {
+            return stored;
+        }
+        byte[] input = Base64.getDecoder().decode(stored.substring(MARKER.length()));
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(chunk);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed text");
+                }
+                output.write(chunk, 0, inflated);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
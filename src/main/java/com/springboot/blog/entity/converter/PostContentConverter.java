@@ -0,0 +1,28 @@
+package com.springboot.blog.entity.converter;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+//stores Post.content compressed once it reaches the threshold (opt-in: app.compression.post-content)
+//reading always understands both formats
+@Converter
+public class PostContentConverter implements AttributeConverter<String, String> {
+
+    @Value("${app.compression.post-content:false}")
+    private boolean enabled;
+
+    @Value("${app.compression.threshold:1024}")
+    private int threshold;
+
+    @Override
+    public String convertToDatabaseColumn(String content) {
+        return CompressedText.toColumn(content, enabled, threshold);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String stored) {
+        return CompressedText.decode(stored);
+    }
+}
@@ -0,0 +1,46 @@
+package com.springboot.blog.entity.id;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+//hibernate side of TimeOrderedIds, the id is known before the insert so hibernate can batch the inserts
+//use it on an entity with:
+//  @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
+//  @GenericGenerator(name = TimeOrderedIdGenerator.NAME, strategy = TimeOrderedIdGenerator.STRATEGY)
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+    public static final String NAME = "time-ordered";
+    public static final String STRATEGY = "com.springboot.blog.entity.id.TimeOrderedIdGenerator";
+
+    //passed in through spring.jpa.properties, every application node needs its own, there is no default
+    public static final String NODE_ID_SETTING = "app.id.node-id";
+
+    private TimeOrderedIds ids;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        String nodeId = ConfigurationHelper.getString(NODE_ID_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), "");
+        if (nodeId.trim().isEmpty()) {
+            throw new IllegalStateException(NODE_ID_SETTING + " is not set: every application instance needs its own "
+                    + "node id between 0 and " + TimeOrderedIds.MAX_NODE_ID + ", or they generate the same ids");
+        }
+        try {
+            ids = new TimeOrderedIds(Integer.parseInt(nodeId.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(NODE_ID_SETTING + " must be a number, was " + nodeId);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return ids.next();
+    }
+}
@@ -0,0 +1,55 @@
+package com.springboot.blog.entity.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//snowflake style ids: | 41 bits millis since EPOCH | 4 bits node | 8 bits sequence |
+//53 bits in total so the ids survive a round trip through a javascript number (json clients)
+//ids of a node are strictly increasing, ids of different nodes are ordered by their millisecond
+public class TimeOrderedIds {
+
+    //2024-01-01T00:00:00Z, the 41 bits of millis last until 2093
+    public static final long EPOCH = 1704067200000L;
+
+    public static final int NODE_BITS = 4;
+    public static final int SEQUENCE_BITS = 8;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+
+    //(millis << SEQUENCE_BITS) | sequence of the last id, updated with CAS only
+    private final AtomicLong last = new AtomicLong();
+
+    public TimeOrderedIds(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    public long next() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = last.get();
+            //a new millisecond restarts the sequence, otherwise (same millisecond, sequence exhausted or the
+            //clock went backwards) keep counting: an exhausted sequence borrows the next millisecond instead of
+            //spinning, the clock catches up again as soon as the burst is over
+            next = now > prev ? now : prev + 1;
+        } while (!last.compareAndSet(prev, next));
+
+        return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node | (next & SEQUENCE_MASK);
+    }
+
+    //creation time of an id, in epoch millis
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    //smallest id any node can generate at the given epoch millis
+    public static long minIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS);
+    }
+}
@@ -0,0 +1,23 @@
+package com.springboot.blog.event;
+
+import com.springboot.blog.payload.CommentDto;
+
+//published once a new comment has been stored, listeners react to it after the commit
+public class CommentCreatedEvent {
+
+    private final long postId;
+    private final CommentDto comment;
+
+    public CommentCreatedEvent(long postId, CommentDto comment) {
+        this.postId = postId;
+        this.comment = comment;
+    }
+
+    public long getPostId() {
+        return postId;
+    }
+
+    public CommentDto getComment() {
+        return comment;
+    }
+}
@@ -10,14 +10,20 @@ public class ResourceNotFoundException extends RuntimeException{
     private long fieldValue;
 
     public ResourceNotFoundException(String resourceName, String fieldName, long fieldValue) {
-        //pass a message using super method
-        super(String.format("%s not found with %s : '%s'", resourceName, fieldName, fieldValue));
+        //a missing resource is an expected outcome, not a bug --> skip the stack trace capture
+        super(null, null, false, false);
 
         this.resourceName = resourceName;
         this.fieldName = fieldName;
         this.fieldValue = fieldValue;
     }
 
+    //build the message only when somebody actually reads it
+    @Override
+    public String getMessage() {
+        return resourceName + " not found with " + fieldName + " : '" + fieldValue + "'";
+    }
+
     public String getResourceName() {
         return resourceName;
     }
@@ -30,4 +36,3 @@ public class ResourceNotFoundException extends RuntimeException{
         return fieldValue;
     }
 }
-
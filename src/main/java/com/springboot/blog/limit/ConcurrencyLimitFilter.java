@@ -0,0 +1,158 @@
+package com.springboot.blog.limit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.monitoring.RequestTimings;
+import com.springboot.blog.payload.ErrorDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Date;
+
+//load shedding for the post/comment api: requests over the adaptive limit get a fast 503 + Retry-After
+//instead of piling up on tomcat threads and hikari waits while the db is slow
+//runs right after the ServerTimingFilter and before the security filter chain, so rejects cost next to nothing
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final ConcurrencyLimits limits;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String[] paths;
+    private final String[] excludedPaths;
+    private final long retryAfterSeconds;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public ConcurrencyLimitFilter(ConcurrencyLimits limits, ObjectMapper objectMapper,
+                                  @Value("${app.concurrency-limit.enabled:true}") boolean enabled,
+                                  @Value("${app.concurrency-limit.paths:/api/posts/**}") String[] paths,
+                                  @Value("${app.concurrency-limit.excluded-paths:/api/posts/*/comments/stream}") String[] excludedPaths,
+                                  @Value("${app.concurrency-limit.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.limits = limits;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.paths = paths;
+        this.excludedPaths = excludedPaths;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !matches(paths, path) || matches(excludedPaths, path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        VegasLimit limit = limits.forMethod(request.getMethod());
+        int inflight = limit.tryAcquire();
+        if (inflight == 0) {
+            reject(request, response);
+            return;
+        }
+
+        RequestTimings timings = RequestTimings.current();
+        int statementsBefore = timings == null ? 0 : timings.getSqlStatements();
+        long start = System.nanoTime();
+        boolean released = false;
+        try {
+            filterChain.doFilter(request, response);
+
+            //async requests (write-behind comments) hold their slot until they complete
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(limit, response, start, inflight));
+                released = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            limit.release(System.nanoTime() - start, inflight, true);
+            released = true;
+            throw e;
+        } finally {
+            if (!released) {
+                boolean dropped = response.getStatus() >= 500;
+                //only requests that ran sql say something about the db, cache hits, Bloom filter 404s or /trending
+                //answer in microseconds and would drag the min rtt down to their latency
+                //(without the ServerTimingFilter nothing is counted, every request is a sample)
+                if (dropped || timings == null || timings.getSqlStatements() > statementsBefore) {
+                    limit.release(System.nanoTime() - start, inflight, dropped);
+                } else {
+                    limit.releaseWithoutSample();
+                }
+            }
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorDetails(new Date(),
+                "The server is overloaded, please retry later.", "uri=" + request.getRequestURI()));
+    }
+
+    private boolean matches(String[] patterns, String path) {
+        for (String pattern : patterns) {
+            if (!pattern.isEmpty() && pathMatcher.match(pattern.trim(), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //onComplete always comes last, also after a timeout or an error
+    //always a sample: the request waited for the write-behind batch, its sql just ran on the writer thread
+    private static class ReleasingListener implements AsyncListener {
+
+        private final VegasLimit limit;
+        private final HttpServletResponse response;
+        private final long start;
+        private final int inflight;
+        private boolean dropped;
+
+        ReleasingListener(VegasLimit limit, HttpServletResponse response, long start, int inflight) {
+            this.limit = limit;
+            this.response = response;
+            this.start = start;
+            this.inflight = inflight;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release(System.nanoTime() - start, inflight, dropped || response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            dropped = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            dropped = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            //a new startAsync drops the listeners, stay registered until the request really completes
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.springboot.blog.limit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+//separate limits for reads and writes: slow writes (locks, bulk deletes) must not shed the cheap reads
+@Component
+public class ConcurrencyLimits {
+
+    private final VegasLimit readLimit;
+    private final VegasLimit writeLimit;
+
+    public ConcurrencyLimits(@Value("${app.concurrency-limit.initial-limit:20}") int initialLimit,
+                             @Value("${app.concurrency-limit.min-limit:4}") int minLimit,
+                             @Value("${app.concurrency-limit.max-limit:200}") int maxLimit,
+                             @Value("${app.concurrency-limit.probe-interval-ms:30000}") long probeIntervalMillis) {
+        this.readLimit = new VegasLimit(initialLimit, minLimit, maxLimit, probeIntervalMillis);
+        this.writeLimit = new VegasLimit(initialLimit, minLimit, maxLimit, probeIntervalMillis);
+    }
+
+    public VegasLimit forMethod(String method) {
+        return method.equals("GET") || method.equals("HEAD") ? readLimit : writeLimit;
+    }
+
+    public VegasLimit getReadLimit() {
+        return readLimit;
+    }
+
+    public VegasLimit getWriteLimit() {
+        return writeLimit;
+    }
+}
@@ -0,0 +1,124 @@
+package com.springboot.blog.limit;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+//adaptive concurrency limit (tcp vegas style), learned from the request latency:
+//the queue in front of the db is estimated as limit * (1 - minRtt / rtt), a short queue grows the limit,
+//a long one or a failed request shrinks it, so the limit settles right where latency starts to climb
+public class VegasLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    //the min rtt is re-learned every probeIntervalNanos plus up to 50% jitter (so the nodes don't all probe at once),
+    //it follows a db that got permanently faster/slower
+    private final long probeIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int limit;
+
+    //guarded by this
+    private double estimatedLimit;
+    private long minRttNanos;
+    private long nextProbeNanos;
+
+    public VegasLimit(int initialLimit, int minLimit, int maxLimit, long probeIntervalMillis) {
+        this(initialLimit, minLimit, maxLimit, probeIntervalMillis, System::nanoTime);
+    }
+
+    VegasLimit(int initialLimit, int minLimit, int maxLimit, long probeIntervalMillis, LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(probeIntervalMillis);
+        this.nanoClock = nanoClock;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+        this.nextProbeNanos = nextProbe(nanoClock.getAsLong());
+    }
+
+    //returns the inflight count including this request, or 0 if the limit is reached and the request has to be rejected
+    public int tryAcquire() {
+        int current;
+        do {
+            current = inflight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return 0;
+            }
+        } while (!inflight.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+    //inflightAtStart is what tryAcquire returned, dropped means the request failed (timeouts, 5xx)
+    public void release(long rttNanos, int inflightAtStart, boolean dropped) {
+        inflight.decrementAndGet();
+        update(rttNanos, inflightAtStart, dropped);
+    }
+
+    //for requests that didn't reach the db (cached responses, filtered 404s): their latency says nothing about it
+    public void releaseWithoutSample() {
+        inflight.decrementAndGet();
+    }
+
+    private synchronized void update(long rttNanos, int inflightAtStart, boolean dropped) {
+        rttNanos = Math.max(1, rttNanos);
+        long now = nanoClock.getAsLong();
+        if (now - nextProbeNanos >= 0) {
+            //probe: re-learn the min rtt from this sample, the limit itself is left alone (a db that got slower would
+            //otherwise look like a long queue forever and keep the limit too low). A sample that queued would inflate
+            //the min rtt and let the limit creep up, so the probe waits for one that ran with at most half the limit
+            //in flight, unless the load stays that high for another probe interval
+            if (inflightAtStart * 2 <= estimatedLimit || now - nextProbeNanos >= probeIntervalNanos) {
+                nextProbeNanos = nextProbe(now);
+                minRttNanos = rttNanos;
+                return;
+            }
+        }
+        if (minRttNanos == 0 || rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+        }
+
+        double step = Math.max(1, Math.log10(estimatedLimit));
+        if (dropped) {
+            //failures mean the db is already in trouble, back off multiplicatively
+            estimatedLimit = estimatedLimit * 0.9;
+        } else {
+            double queue = estimatedLimit * (1 - (double) minRttNanos / rttNanos);
+            //only grow a limit that is actually used, otherwise it drifts up while the traffic is low
+            if (queue <= 3 * step && inflightAtStart * 2 >= estimatedLimit) {
+                estimatedLimit += step;
+            } else if (queue >= 6 * step) {
+                estimatedLimit -= step;
+            }
+        }
+
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    private long nextProbe(long now) {
+        return now + probeIntervalNanos + (long) (ThreadLocalRandom.current().nextDouble(0.5) * probeIntervalNanos);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public synchronized double getMinRttMillis() {
+        return minRttNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,164 @@
+package com.springboot.blog.monitoring;
+
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.ProfileSummary;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+//bounded Java Flight Recorder recordings on demand, JDK only
+//a recording stops by itself after its duration and is written to the profiling directory
+@Component
+public class FlightRecorderProfiler {
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final long maxDurationSeconds;
+    private final int topN;
+
+    public FlightRecorderProfiler(@Value("${app.profiling.directory:${java.io.tmpdir}/blog-profiles}") String directory,
+                                  @Value("${app.profiling.max-duration-seconds:300}") long maxDurationSeconds,
+                                  @Value("${app.profiling.top:20}") int topN) {
+        this.directory = Paths.get(directory);
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.topN = topN;
+    }
+
+    public synchronized String start(long durationSeconds) throws IOException, ParseException {
+        if (durationSeconds <= 0 || durationSeconds > maxDurationSeconds) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST,
+                    "The duration should be between 1 and " + maxDurationSeconds + " seconds.");
+        }
+        //one recording at a time keeps the overhead bounded
+        for (Recording recording : recordings.values()) {
+            if (recording.getState() == RecordingState.RUNNING || recording.getState() == RecordingState.DELAYED) {
+                throw new BlogAPIException(HttpStatus.CONFLICT, "Recording " + recording.getName() + " is still running.");
+            }
+        }
+
+        Files.createDirectories(directory);
+        String name = "profile-" + LocalDateTime.now().format(NAME_FORMAT);
+
+        Recording recording = new Recording(Configuration.getConfiguration("profile"));
+        recording.setName(name);
+        recording.enable(ServiceCallEvent.class).withThreshold(Duration.ZERO);
+        recording.setDuration(Duration.ofSeconds(durationSeconds));
+        recording.setDestination(file(name));
+        recording.setToDisk(true);
+        recording.start();
+
+        recordings.put(name, recording);
+        return name;
+    }
+
+    public List<String> list() {
+        return recordings.keySet().stream().sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+
+    //the .jfr file, once the recording has stopped
+    public Path getFile(String name) {
+        Recording recording = get(name);
+        if (recording.getState() != RecordingState.CLOSED && recording.getState() != RecordingState.STOPPED) {
+            throw new BlogAPIException(HttpStatus.CONFLICT, "Recording " + name + " is still running.");
+        }
+        return file(name);
+    }
+
+    public ProfileSummary summarize(String name) throws IOException {
+        Recording recording = get(name);
+        Path file = getFile(name);
+
+        Map<String, long[]> cpu = new HashMap<>();
+        Map<String, long[]> allocations = new HashMap<>();
+        Map<String, long[]> calls = new HashMap<>();
+
+        try (RecordingFile events = new RecordingFile(file)) {
+            while (events.hasMoreEvents()) {
+                RecordedEvent event = events.readEvent();
+                switch (event.getEventType().getName()) {
+                    case "jdk.ExecutionSample":
+                        add(cpu, topFrame(event.getStackTrace()), 1);
+                        break;
+                    case "jdk.ObjectAllocationSample":
+                        add(allocations, topFrame(event.getStackTrace()), event.getLong("weight"));
+                        break;
+                    case "com.springboot.blog.ServiceCall":
+                        add(calls, event.getString("layer") + " " + event.getString("operation"),
+                                event.getDuration().toMillis());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        return new ProfileSummary(name, recording.getState().name(), recording.getDuration().toMillis(),
+                top(cpu), top(allocations), top(calls));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        recordings.values().forEach(Recording::close);
+    }
+
+    private Recording get(String name) {
+        Recording recording = recordings.get(name);
+        if (recording == null) {
+            throw new BlogAPIException(HttpStatus.NOT_FOUND, "Recording " + name + " not found.");
+        }
+        return recording;
+    }
+
+    private Path file(String name) {
+        return directory.resolve(name + ".jfr");
+    }
+
+    private static String topFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "<unknown>";
+        }
+        RecordedFrame frame = stackTrace.getFrames().get(0);
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    //value[0] = summed value, value[1] = number of events
+    private static void add(Map<String, long[]> totals, String key, long value) {
+        long[] total = totals.computeIfAbsent(key, k -> new long[2]);
+        total[0] += value;
+        total[1]++;
+    }
+
+    private List<ProfileSummary.Hotspot> top(Map<String, long[]> totals) {
+        return totals.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+                .limit(topN)
+                .map(entry -> new ProfileSummary.Hotspot(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package com.springboot.blog.monitoring;
+
+//per-request time spent in each phase, kept in a thread local by ServerTimingFilter
+//phases are exclusive: a nested phase (e.g. a lazy load while mapping) pauses the outer one
+//every call is a no-op on threads that are not serving a timed request
+public final class RequestTimings {
+
+    public enum Phase {
+        DB("db"),
+        MAPPING("map"),
+        AUTH("auth"),
+        SERIALIZATION("ser");
+
+        private final String metric;
+
+        Phase(String metric) {
+            this.metric = metric;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+    }
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+    private static final int MAX_DEPTH = 8;
+
+    private final long startNanos = System.nanoTime();
+    private final long[] nanos = new long[Phase.values().length];
+    private final Phase[] stack = new Phase[MAX_DEPTH];
+    private int depth;
+    private long activeSince;
+    private int sqlStatements;
+
+    private RequestTimings() {
+    }
+
+    public static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    //continues a request's timings on the thread of its async dispatch
+    public static void resume(RequestTimings timings) {
+        CURRENT.set(timings);
+    }
+
+    //the timings of the request served by this thread, null if there is none
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static void start(Phase phase) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (timings.depth > 0) {
+            timings.addActive(now);
+        }
+        if (timings.depth < MAX_DEPTH) {
+            timings.stack[timings.depth] = phase;
+        }
+        timings.depth++;
+        timings.activeSince = now;
+    }
+
+    public static void stop() {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null || timings.depth == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        timings.addActive(now);
+        timings.depth--;
+        timings.activeSince = now;
+    }
+
+    public static void countStatement() {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.sqlStatements++;
+        }
+    }
+
+    public double getMillis(Phase phase) {
+        return nanos[phase.ordinal()] / 1_000_000.0;
+    }
+
+    public double getTotalMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
+
+    public int getSqlStatements() {
+        return sqlStatements;
+    }
+
+    //Server-Timing header value, e.g. db;dur=3.2;desc="4 sql", map;dur=0.4, total;dur=5.1
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(128);
+        for (Phase phase : Phase.values()) {
+            header.append(phase.getMetric()).append(";dur=").append(format(getMillis(phase)));
+            if (phase == Phase.DB) {
+                header.append(";desc=\"").append(sqlStatements).append(" sql\"");
+            }
+            header.append(", ");
+        }
+        return header.append("total;dur=").append(format(getTotalMillis())).toString();
+    }
+
+    private void addActive(long now) {
+        Phase active = stack[Math.min(depth, MAX_DEPTH) - 1];
+        nanos[active.ordinal()] += now - activeSince;
+    }
+
+    private static String format(double millis) {
+        return String.valueOf(Math.round(millis * 10) / 10.0);
+    }
+}
@@ -0,0 +1,188 @@
+package com.springboot.blog.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+//times every request by phase (db, mapping, auth, serialization) and reports it as a Server-Timing header,
+//plus a structured log line for requests slower than the threshold
+//runs before the security filter chain, so authentication is part of the measured time
+//async requests (write-behind comments) are measured until they complete: the timings move to the async dispatch
+//through a request attribute and the log line is written by an AsyncListener. Work done on other threads meanwhile
+//(e.g. the batch writer) counts towards the total only.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private static final String TIMINGS_ATTRIBUTE = ServerTimingFilter.class.getName() + ".timings";
+
+    private final boolean enabled;
+    private final long slowRequestMillis;
+
+    public ServerTimingFilter(@Value("${app.server-timing.enabled:true}") boolean enabled,
+                              @Value("${app.server-timing.slow-request-ms:500}") long slowRequestMillis) {
+        this.enabled = enabled;
+        this.slowRequestMillis = slowRequestMillis;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    //the async dispatch writes the response of an async request, it has to be timed as well
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean asyncDispatch = isAsyncDispatch(request);
+        RequestTimings timings = asyncDispatch ? (RequestTimings) request.getAttribute(TIMINGS_ATTRIBUTE) : null;
+        if (timings == null) {
+            asyncDispatch = false;
+            timings = RequestTimings.begin();
+            request.setAttribute(TIMINGS_ATTRIBUTE, timings);
+        } else {
+            RequestTimings.resume(timings);
+        }
+
+        //the async dispatch gets the response that was handed to startAsync, i.e. the first dispatch's wrapper
+        ServerTimingResponse timedResponse = WebUtils.getNativeResponse(response, ServerTimingResponse.class);
+        if (timedResponse == null) {
+            timedResponse = new ServerTimingResponse(response, timings);
+        }
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            RequestTimings.end();
+            if (request.isAsyncStarted()) {
+                //the response is written by a later dispatch, the request is logged when it completes
+                if (!asyncDispatch) {
+                    request.getAsyncContext().addListener(new CompletionListener(this, request, response, timings));
+                }
+            } else {
+                timedResponse.complete();
+                if (!asyncDispatch) {
+                    logIfSlow(request, response, timings);
+                }
+            }
+        }
+    }
+
+    private void logIfSlow(HttpServletRequest request, HttpServletResponse response, RequestTimings timings) {
+        if (timings.getTotalMillis() >= slowRequestMillis) {
+            logger.info("slow_request method={} uri={} status={} total_ms={} db_ms={} sql={} map_ms={} auth_ms={} ser_ms={}",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    Math.round(timings.getTotalMillis()),
+                    Math.round(timings.getMillis(RequestTimings.Phase.DB)), timings.getSqlStatements(),
+                    Math.round(timings.getMillis(RequestTimings.Phase.MAPPING)),
+                    Math.round(timings.getMillis(RequestTimings.Phase.AUTH)),
+                    Math.round(timings.getMillis(RequestTimings.Phase.SERIALIZATION)));
+        }
+    }
+
+    //onComplete always comes last, also after a timeout or an error
+    private static class CompletionListener implements AsyncListener {
+
+        private final ServerTimingFilter filter;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final RequestTimings timings;
+
+        CompletionListener(ServerTimingFilter filter, HttpServletRequest request, HttpServletResponse response,
+                           RequestTimings timings) {
+            this.filter = filter;
+            this.request = request;
+            this.response = response;
+            this.timings = timings;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            filter.logIfSlow(request, response, timings);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            //a new startAsync drops the listeners, stay registered until the request really completes
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    //headers can't change once the body starts, so the body is buffered until the handler is done (serialization
+    //included) and the header goes out in front of it. A handler that flushes explicitly (SSE streams) gets its bytes
+    //sent right away, the header then only covers the time until that first flush.
+    private static class ServerTimingResponse extends ContentCachingResponseWrapper {
+
+        private final RequestTimings timings;
+
+        ServerTimingResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        //once per request: the async dispatch reuses the response of the first dispatch
+        void writeHeader() {
+            if (!isCommitted() && !containsHeader("Server-Timing")) {
+                setHeader("Server-Timing", timings.toServerTiming());
+            }
+        }
+
+        void complete() throws IOException {
+            writeHeader();
+            copyBodyToResponse();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            copyBodyToResponse(false);
+            getResponse().flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.springboot.blog.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//JFR event around every service and repository call, only recorded while a flight recording is running
+@Name("com.springboot.blog.ServiceCall")
+@Label("Service Call")
+@Category({"Blog", "Calls"})
+@Description("Call of a service or repository method")
+@StackTrace(false)
+public class ServiceCallEvent extends jdk.jfr.Event {
+
+    @Label("Layer")
+    String layer;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,57 @@
+package com.springboot.blog.monitoring;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+
+//emits a ServiceCallEvent for every call to a service interface or a Spring Data repository
+//costs next to nothing when no recording is running (the event is disabled)
+@Aspect
+@Component
+public class ServiceCallEventAspect {
+
+    @Around("execution(* com.springboot.blog.service.*Service.*(..))")
+    public Object aroundService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return record("service", joinPoint);
+    }
+
+    @Around("execution(* com.springboot.blog.repository.*Repository.*(..))")
+    public Object aroundRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return record("repository", joinPoint);
+    }
+
+    private static Object record(String layer, ProceedingJoinPoint joinPoint) throws Throwable {
+        ServiceCallEvent event = new ServiceCallEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        event.begin();
+        boolean failed = true;
+        try {
+            Object result = joinPoint.proceed();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.layer = layer;
+                event.operation = typeName(joinPoint) + "." + joinPoint.getSignature().getName();
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    //inherited repository methods are declared on CrudRepository & co, report the app's repository instead
+    private static String typeName(ProceedingJoinPoint joinPoint) {
+        for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(joinPoint.getThis())) {
+            if (type.getName().startsWith("com.springboot.blog.")) {
+                return type.getSimpleName();
+            }
+        }
+        return joinPoint.getSignature().getDeclaringType().getSimpleName();
+    }
+}
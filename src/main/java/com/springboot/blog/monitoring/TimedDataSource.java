@@ -0,0 +1,79 @@
+package com.springboot.blog.monitoring;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+//adds the time spent in jdbc (connection checkout, statement preparation and execution) to the DB phase
+//of the current request and counts the executed statements
+public class TimedDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public TimedDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection(), Connection.class, false);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password), Connection.class, false);
+    }
+
+    private static <T> T wrap(T target, Class<T> type, boolean statement) {
+        InvocationHandler handler = (proxy, method, args) -> invoke(target, method, args, statement);
+        return type.cast(Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args, boolean statement) throws Throwable {
+        String name = method.getName();
+        boolean execute = statement && EXECUTE_METHODS.contains(name);
+        boolean timed = execute || (!statement && (name.startsWith("prepare") || name.equals("createStatement")));
+        if (!timed) {
+            return call(target, method, args);
+        }
+
+        RequestTimings.start(RequestTimings.Phase.DB);
+        try {
+            Object result = call(target, method, args);
+            if (execute) {
+                RequestTimings.countStatement();
+            }
+            if (result instanceof CallableStatement) {
+                return wrap((CallableStatement) result, CallableStatement.class, true);
+            }
+            if (result instanceof PreparedStatement) {
+                return wrap((PreparedStatement) result, PreparedStatement.class, true);
+            }
+            if (result instanceof Statement && !statement) {
+                return wrap((Statement) result, Statement.class, true);
+            }
+            return result;
+        } finally {
+            RequestTimings.stop();
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
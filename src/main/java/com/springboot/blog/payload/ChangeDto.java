@@ -0,0 +1,19 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeDto {
+    private long token;
+    private String entityType;
+    private long id;
+    private long postId;
+    private String operation;
+    private Date changedAt;
+}
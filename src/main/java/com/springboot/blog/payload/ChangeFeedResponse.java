@@ -0,0 +1,17 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeFeedResponse {
+    private List<ChangeDto> changes;
+    //pass it as ?since= on the next call
+    private long nextToken;
+    private boolean hasMore;
+}
@@ -0,0 +1,15 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConcurrencyLimitStats {
+    private int limit;
+    private int inflight;
+    private long rejected;
+    private double minRttMillis;
+}
@@ -23,5 +23,7 @@ public class PostDto {
     @NotEmpty
     private String content;
 
+    private long views;
+
     private Set<CommentDto> comments;
 }
@@ -0,0 +1,35 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProfileSummary {
+
+    private String name;
+    private String state;
+    private long durationMillis;
+
+    //top methods by CPU samples
+    private List<Hotspot> cpu;
+
+    //top allocation sites by sampled bytes
+    private List<Hotspot> allocations;
+
+    //slowest service/repository operations by total time (custom ServiceCall events)
+    private List<Hotspot> calls;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Hotspot {
+        private String frame;
+        private long value;
+        private long count;
+    }
+}
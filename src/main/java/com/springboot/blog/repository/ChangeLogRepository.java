@@ -0,0 +1,27 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.ChangeLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    //keyset scan over the primary key, the cost only depends on the number of changes after the token
+    @Query("select c from ChangeLogEntry c where c.seq > :since order by c.seq")
+    List<ChangeLogEntry> findAfter(@Param("since") long since, Pageable pageable);
+
+    @Query("select min(c.seq) from ChangeLogEntry c")
+    Long findMinSeq();
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChangeLogEntry c where c.changedAt < :before")
+    int deleteOlderThan(@Param("before") Date before);
+}
@@ -2,10 +2,20 @@ package com.springboot.blog.repository;
 
 import com.springboot.blog.entity.Comment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     List<Comment> findByPostId(long postId);
+
+    //set based delete of at most `limit` comments of a post, nothing is loaded into the persistence context
+    @Transactional
+    @Modifying
+    @Query(value = "delete from comments where post_id = :postId limit :limit", nativeQuery = true)
+    int deleteChunkByPostId(@Param("postId") long postId, @Param("limit") int limit);
 }
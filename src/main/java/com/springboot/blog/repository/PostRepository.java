@@ -1,9 +1,24 @@
 package com.springboot.blog.repository;
 
 import com.springboot.blog.entity.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
-    //
+
+    //keyset scan over the post ids only, used to warm up the in-memory id filter in chunks
+    @Query("select p.id from Post p where p.id > :afterId order by p.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    //deletes the post row without loading it, its comments have to be removed first
+    @Transactional
+    @Modifying
+    @Query("delete from Post p where p.id = :id")
+    int deleteRowById(@Param("id") long id);
 }
@@ -0,0 +1,17 @@
+package com.springboot.blog.service;
+
+import com.springboot.blog.entity.ChangeLogEntry;
+import com.springboot.blog.payload.ChangeFeedResponse;
+
+import java.util.List;
+
+public interface ChangeFeedService {
+
+    //has to run inside the transaction of the change itself, the entry is written right before it commits
+    void record(ChangeLogEntry.EntityType entityType, long entityId, long postId, ChangeLogEntry.Operation operation);
+
+    //many changes with a single jdbc batch, same transaction rules as record
+    void recordAll(List<ChangeLogEntry> entries);
+
+    ChangeFeedResponse getChanges(long since, int limit);
+}
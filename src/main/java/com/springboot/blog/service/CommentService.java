@@ -3,11 +3,14 @@ package com.springboot.blog.service;
 import com.springboot.blog.payload.CommentDto;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface CommentService {
 
     CommentDto createComment(long postId, CommentDto commentDto);
 
+    CompletableFuture<CommentDto> createCommentAsync(long postId, CommentDto commentDto);
+
     List<CommentDto> getCommentsByPostId(long postId);
 
     CommentDto getCommentById(long postId, long commentId);
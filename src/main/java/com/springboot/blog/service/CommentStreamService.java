@@ -0,0 +1,10 @@
+package com.springboot.blog.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface CommentStreamService {
+
+    SseEmitter subscribe(long postId);
+
+    int getSubscriberCount();
+}
@@ -2,6 +2,9 @@ package com.springboot.blog.service;
 
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.TrendingPostDto;
+
+import java.util.List;
 
 public interface PostService {
 
@@ -11,7 +14,15 @@ public interface PostService {
 
     PostDto getPostById(long id);
 
+    void recordPostView(long id);
+
+    List<PostDto> getPostsByIds(List<Long> ids);
+
+    List<TrendingPostDto> getTrendingPosts(int limit);
+
     PostDto updatePost(PostDto postDto, long id);
 
     void deletePostById(long id);
+
+    int deletePostsByIds(List<Long> ids);
 }
@@ -0,0 +1,178 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.ChangeLogEntry;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.ChangeDto;
+import com.springboot.blog.payload.ChangeFeedResponse;
+import com.springboot.blog.repository.ChangeLogRepository;
+import com.springboot.blog.service.ChangeFeedService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class ChangeFeedServiceImpl implements ChangeFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedServiceImpl.class);
+
+    private ChangeLogRepository changeLogRepository;
+    private JdbcTemplate jdbcTemplate;
+    private EntityManager entityManager;
+
+    //max number of changes returned per call
+    @Value("${app.change-feed.max-page-size:1000}")
+    private int maxPageSize;
+
+    //how long a seq gap has to stay open before it is taken for a failed commit and skipped
+    @Value("${app.change-feed.settle-ms:5000}")
+    private long settleMillis;
+
+    //first missing seq of a gap -> System.nanoTime() when this node first saw it
+    //measured locally from the first sighting, no clock of another node (or of the writer) is involved
+    private final ConcurrentMap<Long, Long> gapsSeenAt = new ConcurrentHashMap<>();
+
+    @Value("${app.change-feed.retention-days:30}")
+    private long retentionDays;
+
+    @Autowired
+    public ChangeFeedServiceImpl(ChangeLogRepository changeLogRepository, JdbcTemplate jdbcTemplate,
+                                 EntityManager entityManager) {
+        this.changeLogRepository = changeLogRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(ChangeLogEntry.EntityType entityType, long entityId, long postId, ChangeLogEntry.Operation operation) {
+        pendingChanges().entries.add(new ChangeLogEntry(entityType, entityId, postId, operation, new Date()));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<ChangeLogEntry> entries) {
+        pendingChanges().entries.addAll(entries);
+    }
+
+    //the rows are inserted right before the commit, not when the change is made: the seq is taken as late as
+    //possible, so a seq that isn't visible yet belongs to a transaction in the middle of its commit,
+    //however long the transaction ran before
+    //the entity changes are flushed first: hibernate would only flush them after all beforeCommit callbacks,
+    //a lock wait of that flush would keep our seq invisible for longer than the settle time
+    private PendingChanges pendingChanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges) {
+                return (PendingChanges) synchronization;
+            }
+        }
+        PendingChanges pendingChanges = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pendingChanges);
+        return pendingChanges;
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final List<ChangeLogEntry> entries = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!entries.isEmpty()) {
+                entityManager.flush();
+                insert(entries);
+            }
+        }
+    }
+
+    private void insert(List<ChangeLogEntry> entries) {
+        //the seq is an IDENTITY column, hibernate would insert the entries one by one
+        jdbcTemplate.batchUpdate(
+                "insert into change_log (entity_type, entity_id, post_id, operation, changed_at) values (?, ?, ?, ?, ?)",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setString(1, entry.getEntityType().name());
+                    ps.setLong(2, entry.getEntityId());
+                    ps.setLong(3, entry.getPostId());
+                    ps.setString(4, entry.getOperation().name());
+                    ps.setTimestamp(5, new Timestamp(entry.getChangedAt().getTime()));
+                });
+    }
+
+    //not read-only: a lagging replica would hide committed changes and make them look like gaps
+    @Override
+    @Transactional
+    public ChangeFeedResponse getChanges(long since, int limit) {
+        if (since < 0 || limit < 1) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "since must be >= 0 and limit >= 1");
+        }
+        int pageSize = Math.min(limit, maxPageSize);
+
+        //the changes right after the token were purged, the consumer has to resync from scratch
+        //(0 is a fresh consumer, it crawls the posts once and then follows the feed)
+        Long minSeq = since > 0 ? changeLogRepository.findMinSeq() : null;
+        if (minSeq != null && since < minSeq - 1) {
+            throw new BlogAPIException(HttpStatus.GONE, "The change token " + since + " has expired, resync and restart from 0");
+        }
+
+        //one row more than asked for, to know if there is a next page
+        List<ChangeLogEntry> entries = changeLogRepository.findAfter(since, PageRequest.of(0, pageSize + 1));
+
+        List<ChangeDto> changes = new ArrayList<>(Math.min(entries.size(), pageSize));
+        long nextToken = since;
+        boolean hasMore = entries.size() > pageSize;
+        for (ChangeLogEntry entry : entries) {
+            if (changes.size() == pageSize) {
+                break;
+            }
+            //seqs are handed out at insert but become visible at commit --> a new gap may be a transaction
+            //that is committing right now, stop in front of it so the consumer doesn't skip it with its next token
+            //(a gap that stays open is a failed commit and is skipped)
+            if (entry.getSeq() != nextToken + 1 && !isSettled(nextToken + 1)) {
+                hasMore = true;
+                break;
+            }
+            changes.add(new ChangeDto(entry.getSeq(), entry.getEntityType().name(), entry.getEntityId(),
+                    entry.getPostId(), entry.getOperation().name(), entry.getChangedAt()));
+            nextToken = entry.getSeq();
+        }
+
+        return new ChangeFeedResponse(changes, nextToken, hasMore);
+    }
+
+    private boolean isSettled(long missingSeq) {
+        long now = System.nanoTime();
+        long seenAt = gapsSeenAt.computeIfAbsent(missingSeq, seq -> now);
+        return now - seenAt >= TimeUnit.MILLISECONDS.toNanos(settleMillis);
+    }
+
+    //the change log only has to cover the consumers' sync lag, not the whole history
+    @Scheduled(fixedDelayString = "${app.change-feed.purge-interval-ms:3600000}")
+    public void purge() {
+        //gaps settled long ago, a consumer still in front of one simply waits for it once more
+        long forgetBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(settleMillis) * 10;
+        gapsSeenAt.values().removeIf(seenAt -> seenAt - forgetBefore < 0);
+
+        Date before = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+        int purged = changeLogRepository.deleteOlderThan(before);
+        if (purged > 0) {
+            logger.info("Purged {} change log entries older than {}", purged, before);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.ChangeLogEntry;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.ChangeFeedService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//write-behind group commit for new comments (opt-in through app.comment-write-behind.enabled)
+//callers enqueue their comment and get a future, a single writer thread drains the queue in micro-batches
+//of up to maxBatchSize comments or maxDelay millis and stores each batch in one transaction
+@Component
+public class CommentBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentBatchWriter.class);
+
+    private final CommentRepository commentRepository;
+    private final PostRepository postRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeFeedService changeFeedService;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long enqueueTimeoutMillis;
+    private final int callbackThreads;
+    private final BlockingQueue<PendingComment> queue;
+
+    private final AtomicLong committedBatches = new AtomicLong();
+    private final AtomicLong committedComments = new AtomicLong();
+    private final AtomicLong rejectedComments = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+    private ExecutorService callbacks;
+
+    public CommentBatchWriter(CommentRepository commentRepository, PostRepository postRepository,
+                              TransactionTemplate transactionTemplate, ChangeFeedService changeFeedService,
+                              @Value("${app.comment-write-behind.enabled:false}") boolean enabled,
+                              @Value("${app.comment-write-behind.queue-capacity:10000}") int queueCapacity,
+                              @Value("${app.comment-write-behind.max-batch-size:200}") int maxBatchSize,
+                              @Value("${app.comment-write-behind.max-delay-ms:10}") long maxDelayMillis,
+                              @Value("${app.comment-write-behind.enqueue-timeout-ms:50}") long enqueueTimeoutMillis,
+                              @Value("${app.comment-write-behind.callback-threads:4}") int callbackThreads) {
+        this.commentRepository = commentRepository;
+        this.postRepository = postRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.changeFeedService = changeFeedService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.callbackThreads = callbackThreads;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger callbackThreadNumber = new AtomicInteger();
+        callbacks = Executors.newFixedThreadPool(callbackThreads, runnable -> {
+            Thread thread = new Thread(runnable, "comment-batch-callback-" + callbackThreadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        writer = new Thread(this::run, "comment-batch-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        //stop accepting, then let the writer flush what is already queued
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        callbacks.shutdown();
+        callbacks.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //the future completes with the stored comment once its batch has committed
+    public CompletableFuture<Comment> submit(long postId, Comment comment) {
+        PendingComment pending = new PendingComment(postId, comment);
+        boolean accepted;
+        try {
+            accepted = running && queue.offer(pending, enqueueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            //backpressure: the writer can't keep up, tell the client to retry instead of queueing forever
+            rejectedComments.incrementAndGet();
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Too many comments are being written, please retry later.");
+        }
+        return pending.future;
+    }
+
+    public long getCommittedBatches() {
+        return committedBatches.get();
+    }
+
+    public long getCommittedComments() {
+        return committedComments.get();
+    }
+
+    public long getRejectedComments() {
+        return rejectedComments.get();
+    }
+
+    public int getQueuedComments() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<PendingComment> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingComment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                //collect more comments until the batch is full or the oldest one waited long enough
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingComment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                commit(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingComment> batch) {
+        List<PendingComment> stored = new ArrayList<>(batch.size());
+        List<PendingComment> missingPost = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                //one query for all the posts of the batch
+                Set<Long> postIds = batch.stream().map(pending -> pending.postId).collect(Collectors.toSet());
+                Map<Long, Post> posts = postRepository.findAllById(postIds).stream()
+                        .collect(Collectors.toMap(Post::getId, Function.identity()));
+
+                List<Comment> comments = new ArrayList<>(batch.size());
+                for (PendingComment pending : batch) {
+                    Post post = posts.get(pending.postId);
+                    if (post == null) {
+                        missingPost.add(pending);
+                        continue;
+                    }
+                    pending.comment.setPost(post);
+                    comments.add(pending.comment);
+                    stored.add(pending);
+                }
+                //the ids are generated before the insert --> the comments go out as jdbc batches on commit
+                List<Comment> saved = commentRepository.saveAll(comments);
+                for (int i = 0; i < saved.size(); i++) {
+                    stored.get(i).saved = saved.get(i);
+                }
+
+                Date now = new Date();
+                changeFeedService.recordAll(saved.stream()
+                        .map(comment -> new ChangeLogEntry(ChangeLogEntry.EntityType.COMMENT, comment.getId(),
+                                comment.getPost().getId(), ChangeLogEntry.Operation.CREATE, now))
+                        .collect(Collectors.toList()));
+            });
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                //one bad row (e.g. its post got deleted before the flush) must not fail the whole batch,
+                //retry every comment in its own transaction
+                logger.warn("Failed to commit a batch of {} comments, retrying them one by one: {}", batch.size(), e.getMessage());
+                for (PendingComment pending : batch) {
+                    //the rolled back insert left a generated id behind, the retry has to persist a new entity
+                    pending.comment.setId(0);
+                    commit(List.of(pending));
+                }
+                return;
+            }
+            logger.warn("Failed to commit a comment of post {}: {}", batch.get(0).postId, e.getMessage());
+            completeExceptionally(batch.get(0), e);
+            return;
+        }
+
+        committedBatches.incrementAndGet();
+        committedComments.addAndGet(stored.size());
+        for (PendingComment pending : missingPost) {
+            completeExceptionally(pending, new ResourceNotFoundException("Post", "id", pending.postId));
+        }
+        for (PendingComment pending : stored) {
+            callbacks.execute(() -> pending.future.complete(pending.saved));
+        }
+    }
+
+    //the futures complete on the callback pool: whatever the callers chained to them (mapping, event fan-out)
+    //must not hold up the writer thread and with it the next group commit
+    private void completeExceptionally(PendingComment pending, Throwable error) {
+        callbacks.execute(() -> pending.future.completeExceptionally(error));
+    }
+
+    private static class PendingComment {
+        private final long postId;
+        private final Comment comment;
+        private final CompletableFuture<Comment> future = new CompletableFuture<>();
+        //the managed entity returned by saveAll
+        private Comment saved;
+
+        PendingComment(long postId, Comment comment) {
+            this.postId = postId;
+            this.comment = comment;
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.PostIdFilter;
+import com.springboot.blog.cache.PostResponseCache;
+import com.springboot.blog.entity.ChangeLogEntry;
 import com.springboot.blog.entity.Comment;
 import com.springboot.blog.entity.Post;
+import com.springboot.blog.event.CommentCreatedEvent;
 import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.monitoring.RequestTimings;
 import com.springboot.blog.payload.CommentDto;
 import com.springboot.blog.repository.CommentRepository;
 import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.ChangeFeedService;
 import com.springboot.blog.service.CommentService;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,21 +33,40 @@ public class CommentServiceImpl implements CommentService {
     private CommentRepository commentRepository;
     private PostRepository postRepository;
     private ModelMapper mapper;
+    private PostIdFilter postIdFilter;
+    private ApplicationEventPublisher eventPublisher;
+    private CommentBatchWriter commentBatchWriter;
+    private PostResponseCache postResponseCache;
+    private ChangeFeedService changeFeedService;
+    private TransactionTemplate transactionTemplate;
 
     @Autowired  //(most of the time use @Autowired, when you have more than one constructor)
-    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository, ModelMapper mapper) {
+    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository, ModelMapper mapper,
+                              PostIdFilter postIdFilter, ApplicationEventPublisher eventPublisher,
+                              CommentBatchWriter commentBatchWriter, PostResponseCache postResponseCache,
+                              ChangeFeedService changeFeedService, TransactionTemplate transactionTemplate) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
         this.mapper = mapper;
+        this.postIdFilter = postIdFilter;
+        this.eventPublisher = eventPublisher;
+        this.commentBatchWriter = commentBatchWriter;
+        this.postResponseCache = postResponseCache;
+        this.changeFeedService = changeFeedService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Override
+    @Transactional
     public CommentDto createComment(long postId, CommentDto commentDto) {
 
         //convert commentDto to comment
         Comment comment = mapToEntity(commentDto);
+        //no id --> persist (the generator assigns it) instead of a merge of a client supplied id
+        comment.setId(0);
 
         //retrieve post entity by Id
+        checkPostExists(postId, "id");
         Post post = postRepository.findById(postId).orElseThrow(
                 () -> new ResourceNotFoundException("Post", "id", postId));
 
@@ -46,15 +75,50 @@ public class CommentServiceImpl implements CommentService {
 
         //save Comment entity to the database
         Comment newComment = commentRepository.save(comment);
+        changeFeedService.record(ChangeLogEntry.EntityType.COMMENT, newComment.getId(), postId, ChangeLogEntry.Operation.CREATE);
 
         //map the saved Comment entity to a CommentDto
-        return mapToDto(newComment);
+        CommentDto createdComment = mapToDto(newComment);
+
+        //notify the live comment streams
+        eventPublisher.publishEvent(new CommentCreatedEvent(postId, createdComment));
+
+        return createdComment;
+    }
+
+    //not @Transactional on purpose --> queueing needs no transaction (nor a connection), only the fallback does
+    @Override
+    public CompletableFuture<CommentDto> createCommentAsync(long postId, CommentDto commentDto) {
+
+        //write-behind disabled --> store the comment right away, in its own transaction
+        if (!commentBatchWriter.isEnabled()) {
+            return CompletableFuture.completedFuture(transactionTemplate.execute(status -> createComment(postId, commentDto)));
+        }
+
+        //reject unknown posts before queueing, the batch writer checks the rest
+        checkPostExists(postId, "id");
+
+        //no id --> the batch writer persists the comment instead of merging a client supplied id
+        Comment comment = mapToEntity(commentDto);
+        comment.setId(0);
+
+        //runs on the batch writer's callback pool, not on the writer thread
+        return commentBatchWriter.submit(postId, comment).thenApply(newComment -> {
+            CommentDto createdComment = mapToDto(newComment);
+
+            //notify the live comment streams
+            eventPublisher.publishEvent(new CommentCreatedEvent(postId, createdComment));
+
+            return createdComment;
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CommentDto> getCommentsByPostId(long postId) {
 
         //retrieve a list of comments based on the postId
+        checkPostExists(postId, "id");
         List<Comment> comments = commentRepository.findByPostId(postId);
 
         //convert the list of Comments to list of CommentDto
@@ -62,9 +126,11 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public CommentDto getCommentById(long postId, long commentId) {
 
         //retrieve a post with the given Id
+        checkPostExists(postId, "id");
         Post post = postRepository.findById(postId).orElseThrow(
                 () -> new ResourceNotFoundException("Post", "id", postId));
 
@@ -81,9 +147,11 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
+    @Transactional
     public CommentDto updateComment(long postId, long commentId, CommentDto commentRequest) {
 
         //retrieve a post with the given postId
+        checkPostExists(postId, "postId");
         Post post = postRepository.findById(postId).orElseThrow(
                 () -> new ResourceNotFoundException("Post", "postId", postId));
 
@@ -102,14 +170,18 @@ public class CommentServiceImpl implements CommentService {
         comment.setBody(commentRequest.getBody());
 
         Comment updatedComment = commentRepository.save(comment);
+        changeFeedService.record(ChangeLogEntry.EntityType.COMMENT, commentId, postId, ChangeLogEntry.Operation.UPDATE);
+        postResponseCache.invalidate(postId);
 
         return mapToDto(updatedComment);
     }
 
     @Override
+    @Transactional
     public void deleteComment(long postId, long commentId) {
 
         //1.retrieve the post with the given Id
+        checkPostExists(postId, "postId");
         Post post = postRepository.findById(postId).orElseThrow(
                 () -> new ResourceNotFoundException("Post", "postId", postId));
 
@@ -125,12 +197,27 @@ public class CommentServiceImpl implements CommentService {
 
         //4.delete the comment
         commentRepository.delete(comment);
+        changeFeedService.record(ChangeLogEntry.EntityType.COMMENT, commentId, postId, ChangeLogEntry.Operation.DELETE);
+        postResponseCache.invalidate(postId);
+    }
+
+    //reject post ids the filter knows are not in the db, before running any query
+    private void checkPostExists(long postId, String fieldName) {
+        if (!postIdFilter.mightContain(postId)) {
+            throw new ResourceNotFoundException("Post", fieldName, postId);
+        }
     }
 
     //create common private methods that we will reuse
     private CommentDto mapToDto(Comment comment) {
 
-        CommentDto commentDto = mapper.map(comment, CommentDto.class);
+        RequestTimings.start(RequestTimings.Phase.MAPPING);
+        CommentDto commentDto;
+        try {
+            commentDto = mapper.map(comment, CommentDto.class);
+        } finally {
+            RequestTimings.stop();
+        }
 
 //        CommentDto commentDto = new CommentDto();
 //        commentDto.setId(comment.getId());
@@ -144,7 +231,13 @@ public class CommentServiceImpl implements CommentService {
     private Comment mapToEntity(CommentDto commentDto) {
 
         //Using model mapper 3rd party package
-        Comment comment = mapper.map(commentDto, Comment.class);
+        RequestTimings.start(RequestTimings.Phase.MAPPING);
+        Comment comment;
+        try {
+            comment = mapper.map(commentDto, Comment.class);
+        } finally {
+            RequestTimings.stop();
+        }
 
 //        Comment comment = new Comment();
 //        comment.setId(commentDto.getId());
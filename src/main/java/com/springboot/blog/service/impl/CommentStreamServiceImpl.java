@@ -0,0 +1,295 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.cache.PostIdFilter;
+import com.springboot.blog.event.CommentCreatedEvent;
+import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.CommentStreamService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//fans out newly created comments to the SSE subscribers of their post
+//idle subscriptions hold no thread (the request is async), a shared pool writes the pending events
+//a write is a blocking servlet write: a client that stops reading pins its sender thread once its tcp buffer is full,
+//so a subscriber whose write takes longer than the write timeout is abandoned and the pool gets a replacement thread
+//(the stuck thread is released by tomcat's own write timeout, then the pool shrinks back)
+@Service
+public class CommentStreamServiceImpl implements CommentStreamService {
+
+    //what to do when a subscriber's buffer is full because it reads slower than comments arrive
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DISCONNECT
+    }
+
+    private static final Object HEARTBEAT = new Object();
+
+    //Subscriber.writeStarted of an abandoned write
+    private static final long ABANDONED = Long.MIN_VALUE;
+
+    private final ConcurrentMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final PostRepository postRepository;
+    private final PostIdFilter postIdFilter;
+    private final ThreadPoolExecutor senders;
+    private final int bufferSize;
+    private final long writeTimeoutNanos;
+    private final AtomicLong abandonedSubscribers = new AtomicLong();
+    private final long timeoutMillis;
+    private final OverflowPolicy overflowPolicy;
+
+    public CommentStreamServiceImpl(PostRepository postRepository, PostIdFilter postIdFilter,
+                                    @Value("${app.comment-stream.sender-threads:4}") int senderThreads,
+                                    @Value("${app.comment-stream.write-timeout-ms:5000}") long writeTimeoutMillis,
+                                    @Value("${app.comment-stream.buffer-size:64}") int bufferSize,
+                                    @Value("${app.comment-stream.timeout-ms:1800000}") long timeoutMillis,
+                                    @Value("${app.comment-stream.overflow-policy:DISCONNECT}") OverflowPolicy overflowPolicy) {
+        this.postRepository = postRepository;
+        this.postIdFilter = postIdFilter;
+        //core == max + core timeout: threads are started as drains come in and stop again when idle
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        this.senders.allowCoreThreadTimeOut(true);
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public SseEmitter subscribe(long postId) {
+
+        //only posts that exist can be followed
+        if (!postIdFilter.mightContain(postId) || !postRepository.existsById(postId)) {
+            throw new ResourceNotFoundException("Post", "id", postId);
+        }
+
+        SseEmitter emitter = createEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(postId, emitter);
+
+        //register inside compute(), so a concurrent unsubscribe can't drop the set we are adding to
+        subscribers.compute(postId, (key, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+            }
+            set.add(subscriber);
+            return set;
+        });
+        subscriberCount.incrementAndGet();
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        //the container's timeout thread only closes the subscriber, the emitter is completed by a sender
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    @Override
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public long getAbandonedSubscribers() {
+        return abandonedSubscribers.get();
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    //runs after the comment's transaction commits (or right away when there is none)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentCreated(CommentCreatedEvent event) {
+        Set<Subscriber> set = subscribers.get(event.getPostId());
+        if (set == null) {
+            return;
+        }
+        for (Subscriber subscriber : set) {
+            subscriber.offer(event.getComment());
+        }
+    }
+
+    //keeps proxies from closing idle connections and detects clients that went away
+    @Scheduled(fixedRateString = "${app.comment-stream.heartbeat-interval-ms:30000}")
+    public void sendHeartbeats() {
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                subscriber.offerHeartbeat();
+            }
+        }
+    }
+
+    //abandons the subscribers whose current write is stuck and replaces the threads they hold
+    @Scheduled(fixedDelayString = "${app.comment-stream.write-timeout-check-ms:1000}")
+    public void abandonStuckWrites() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                long started = subscriber.writeStarted.get();
+                if (started != 0 && started != ABANDONED && now - started > writeTimeoutNanos
+                        && subscriber.writeStarted.compareAndSet(started, ABANDONED)) {
+                    abandonedSubscribers.incrementAndGet();
+                    resizeSenders(1);
+                    subscriber.close();
+                }
+            }
+        }
+    }
+
+    private synchronized void resizeSenders(int delta) {
+        //max first when growing, core first when shrinking, core can never exceed max
+        if (delta > 0) {
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+        } else {
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.computeIfPresent(subscriber.postId, (key, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    private class Subscriber {
+
+        private final long postId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        //System.nanoTime() when the current write started, 0 while not writing, ABANDONED once timed out
+        private final AtomicLong writeStarted = new AtomicLong();
+
+        Subscriber(long postId, SseEmitter emitter) {
+            this.postId = postId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(CommentDto comment) {
+            if (!buffer.offer(comment)) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    close();
+                    return;
+                }
+                //DROP_OLDEST: make room by discarding the oldest pending comment
+                buffer.poll();
+                buffer.offer(comment);
+            }
+            scheduleDrain();
+        }
+
+        void offerHeartbeat() {
+            //a heartbeat is only useful on an idle connection
+            if (buffer.isEmpty() && buffer.offer(HEARTBEAT)) {
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (!closed.get() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        //only one sender thread writes to an emitter at a time
+        private void drain() {
+            try {
+                Object item;
+                while (!closed.get() && (item = buffer.poll()) != null) {
+                    writeStarted.set(System.nanoTime());
+                    emitter.send(toEvent(item));
+                    if (!finishWrite()) {
+                        break;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                finishWrite();
+                close();
+            } finally {
+                draining.set(false);
+            }
+
+            if (closed.get()) {
+                complete();
+                return;
+            }
+            //an item offered while we were finishing up would otherwise wait for the next one
+            if (!buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private SseEmitter.SseEventBuilder toEvent(Object item) {
+            if (item == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            CommentDto comment = (CommentDto) item;
+            return SseEmitter.event()
+                    .id(String.valueOf(comment.getId()))
+                    .name("comment")
+                    .data(comment);
+        }
+
+        //false if the write was abandoned meanwhile --> its replacement thread is no longer needed
+        private boolean finishWrite() {
+            long started = writeStarted.get();
+            if (started == ABANDONED || !writeStarted.compareAndSet(started, 0)) {
+                writeStarted.set(0);
+                resizeSenders(-1);
+                return false;
+            }
+            return true;
+        }
+
+        //never touches the emitter itself: its methods lock the emitter, which a stuck write holds
+        //the emitter is completed by the running drain when its write returns, or by a sender task
+        private void close() {
+            unsubscribe(this);
+            buffer.clear();
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::complete);
+            }
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+    }
+}
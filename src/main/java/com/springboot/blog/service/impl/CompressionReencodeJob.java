@@ -0,0 +1,144 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.converter.CompressedText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//background job that compresses existing plain rows once compression at rest is switched on
+//walks each table by id, one small chunk per tick, and only updates rows that didn't change in the meantime
+//(checked in java under a row lock: `column = ?` in sql would follow the column's collation, case and accent
+//insensitive by default on mysql, and overwrite an edit that only changed case or accents)
+@Component
+public class CompressionReencodeJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressionReencodeJob.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final boolean postContent;
+    private final boolean commentBody;
+    private final int threshold;
+    private final int chunkSize;
+
+    private final Cursor posts = new Cursor("posts", "content");
+    private final Cursor comments = new Cursor("comments", "body");
+
+    public CompressionReencodeJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                  @Value("${app.compression.reencode.enabled:false}") boolean enabled,
+                                  @Value("${app.compression.post-content:false}") boolean postContent,
+                                  @Value("${app.compression.comment-body:false}") boolean commentBody,
+                                  @Value("${app.compression.threshold:1024}") int threshold,
+                                  @Value("${app.compression.reencode.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.postContent = postContent;
+        this.commentBody = commentBody;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.compression.reencode.interval-ms:1000}")
+    public void reencodeNextChunk() {
+        if (!enabled) {
+            return;
+        }
+        if (postContent && !posts.done) {
+            reencodeChunk(posts);
+        } else if (commentBody && !comments.done) {
+            reencodeChunk(comments);
+        }
+    }
+
+    private void reencodeChunk(Cursor cursor) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "select id, " + cursor.column + " from " + cursor.table + " where id > ? order by id limit ?",
+                cursor.lastId, chunkSize);
+
+        //id -> [plain value as read, encoded value]
+        Map<Long, String[]> candidates = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            long id = ((Number) row.get("id")).longValue();
+            cursor.lastId = id;
+
+            String value = (String) row.get(cursor.column);
+            if (value == null || CompressedText.isEncoded(value) || value.length() < threshold) {
+                continue;
+            }
+            long start = System.nanoTime();
+            String encoded = encode(value);
+            cursor.encodeNanos += System.nanoTime() - start;
+            candidates.put(id, new String[]{value, encoded});
+        }
+
+        if (!candidates.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> update(cursor, candidates));
+        }
+
+        if (rows.size() < chunkSize) {
+            cursor.done = true;
+            logger.info("Compressed {} rows of {}.{}: {} -> {} bytes ({} ms encoding)", cursor.rows, cursor.table,
+                    cursor.column, cursor.plainBytes, cursor.storedBytes, cursor.encodeNanos / 1_000_000);
+        }
+    }
+
+    //locks the candidate rows and rewrites the ones that still hold exactly the value we encoded
+    //a row edited after we read it is skipped, the edit went through the converter anyway
+    private void update(Cursor cursor, Map<Long, String[]> candidates) {
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (long id : candidates.keySet()) {
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+        }
+
+        List<Object[]> updates = new ArrayList<>();
+        jdbcTemplate.query("select id, " + cursor.column + " from " + cursor.table
+                + " where id >= ? and id <= ? order by id for update", rs -> {
+            String[] candidate = candidates.get(rs.getLong(1));
+            if (candidate != null && candidate[0].equals(rs.getString(2))) {
+                updates.add(new Object[]{candidate[1], rs.getLong(1)});
+                cursor.plainBytes += candidate[0].getBytes(StandardCharsets.UTF_8).length;
+                cursor.storedBytes += candidate[1].length();
+            }
+        }, minId, maxId);
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("update " + cursor.table + " set " + cursor.column + " = ? where id = ?", updates);
+            cursor.rows += updates.size();
+        }
+    }
+
+    //the value as it is written back
+    String encode(String value) {
+        return CompressedText.encode(value);
+    }
+
+    private static class Cursor {
+        private final String table;
+        private final String column;
+        private long lastId;
+        private boolean done;
+        private long rows;
+        private long plainBytes;
+        private long storedBytes;
+        private long encodeNanos;
+
+        Cursor(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+    }
+}
@@ -1,22 +1,38 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.PostIdFilter;
+import com.springboot.blog.cache.PostResponseCache;
+import com.springboot.blog.cache.PostViewCounter;
+import com.springboot.blog.cache.TrendingPosts;
+import com.springboot.blog.entity.ChangeLogEntry;
 import com.springboot.blog.entity.Post;
+import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.monitoring.RequestTimings;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.TrendingPostDto;
+import com.springboot.blog.repository.CommentRepository;
 import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.ChangeFeedService;
 import com.springboot.blog.service.PostService;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.springboot.blog.utils.AppConstants.POST_SORT_FIELDS;
+
 @Service
 public class PostServiceImpl implements PostService {
 
@@ -25,20 +41,53 @@ public class PostServiceImpl implements PostService {
     //inject Model Mapper
     private ModelMapper mapper;
 
+    private PostIdFilter postIdFilter;
+
+    private CommentRepository commentRepository;
+    private TransactionTemplate transactionTemplate;
+    private PostViewCounter postViewCounter;
+    private TrendingPosts trendingPosts;
+    private PostResponseCache postResponseCache;
+    private ChangeFeedService changeFeedService;
+
+    //max number of comments removed per DELETE statement when a post is deleted
+    @Value("${app.delete.comment-chunk-size:5000}")
+    private int commentDeleteChunkSize;
+
+    //max number of post ids per bulk delete request
+    @Value("${app.delete.max-bulk-size:1000}")
+    private int maxBulkDeleteSize;
+
     @Autowired //--> if an error occurs, check here
-    public PostServiceImpl(PostRepository postRepository, ModelMapper mapper) {
+    public PostServiceImpl(PostRepository postRepository, ModelMapper mapper, PostIdFilter postIdFilter,
+                           CommentRepository commentRepository, TransactionTemplate transactionTemplate,
+                           PostViewCounter postViewCounter, TrendingPosts trendingPosts,
+                           PostResponseCache postResponseCache, ChangeFeedService changeFeedService) {
         this.mapper = mapper;
         this.postRepository = postRepository;
+        this.postIdFilter = postIdFilter;
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.postViewCounter = postViewCounter;
+        this.trendingPosts = trendingPosts;
+        this.postResponseCache = postResponseCache;
+        this.changeFeedService = changeFeedService;
     }
 
     @Override
+    @Transactional
     public PostDto createPost(PostDto postDto) {
 
         //convert DTO to entity
         Post post = mapToEntity(postDto);
+        //no id --> persist (the generator assigns it) instead of a merge that selects the mapped id 0 first
+        post.setId(null);
+        post.setViews(0);
 
         //save to the db
         Post newPost = postRepository.save(post);
+        postIdFilter.put(newPost.getId());
+        changeFeedService.record(ChangeLogEntry.EntityType.POST, newPost.getId(), newPost.getId(), ChangeLogEntry.Operation.CREATE);
 
         //convert post entity to a DTO
         PostDto postResponse = mapToDTO(newPost);
@@ -47,10 +96,23 @@ public class PostServiceImpl implements PostService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir) {
 
-        Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ?
-                Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
+        //only allow the sort fields that have an index, anything else would sort the whole table
+        if (!POST_SORT_FIELDS.contains(sortBy)) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST,
+                    "Posts can't be sorted by '" + sortBy + "', use one of " + POST_SORT_FIELDS);
+        }
+
+        Sort.Direction direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ?
+                Sort.Direction.ASC : Sort.Direction.DESC;
+
+        //id as tiebreaker keeps the paging stable and matches the (field, id) indexes
+        Sort sort = Sort.by(direction, sortBy);
+        if (!sortBy.equals("id")) {
+            sort = sort.and(Sort.by(direction, "id"));
+        }
 
         //add paging and sorting support
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
@@ -74,14 +136,44 @@ public class PostServiceImpl implements PostService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PostDto getPostById(long id) {
+        checkPostExists(id);
         Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
+
+        recordPostView(id);
+
         return mapToDTO(post);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<PostDto> getPostsByIds(List<Long> ids) {
+        //batch lookup, doesn't count as views
+        return postRepository.findAllById(ids).stream().map(post -> mapToDTO(post)).collect(Collectors.toList());
+    }
+
+    @Override
+    public void recordPostView(long id) {
+        //count the view in memory, the db is updated later in batches
+        postViewCounter.increment(id);
+        trendingPosts.recordView(id);
+    }
+
+    @Override
+    public List<TrendingPostDto> getTrendingPosts(int limit) {
+        if (limit < 1) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "The limit must be at least 1");
+        }
+        //served from memory only, no db access
+        return trendingPosts.getTrending(limit);
+    }
+
+    @Override
+    @Transactional
     public PostDto updatePost(PostDto postDto, long id) {
         //get the post by id from db  --> if post doesn't exist throw an exception
+        checkPostExists(id);
         Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
 
         //update the post
@@ -91,27 +183,90 @@ public class PostServiceImpl implements PostService {
 
         //save it to the database
         Post updatedPost = postRepository.save(post);
+        changeFeedService.record(ChangeLogEntry.EntityType.POST, id, id, ChangeLogEntry.Operation.UPDATE);
+        postResponseCache.invalidate(id);
 
         //map the post to a postDto
         return mapToDTO(updatedPost);
     }
 
+    //not @Transactional on purpose --> every comment chunk commits on its own, see deletePostWithComments
     @Override
     public void deletePostById(long id) {
 
-        //get post with that id
-        Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
+        //check the post could exist
+        checkPostExists(id);
 
-        //delete
-        postRepository.delete(post);
+        //delete the comments and the post without loading them --> nothing deleted means the post didn't exist
+        if (!deletePostWithComments(id)) {
+            throw new ResourceNotFoundException("Post", "id", id);
+        }
     }
 
+    @Override
+    public int deletePostsByIds(List<Long> ids) {
+
+        //bounded so one request can't queue an unbounded delete
+        if (ids == null || ids.size() > maxBulkDeleteSize) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST,
+                    "A bulk delete takes a list of at most " + maxBulkDeleteSize + " post ids");
+        }
+        if (ids.contains(null)) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Post ids can't be null");
+        }
+
+        int deleted = 0;
+        for (long id : ids) {
+            //unknown ids are skipped instead of failing the whole batch
+            if (postIdFilter.mightContain(id) && deletePostWithComments(id)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    //removes the comments with set based deletes in bounded chunks (each chunk commits on its own),
+    //then the post row, so the delete never hydrates the comment collection
+    private boolean deletePostWithComments(long id) {
+        int removed;
+        do {
+            removed = commentRepository.deleteChunkByPostId(id, commentDeleteChunkSize);
+        } while (removed == commentDeleteChunkSize);
+
+        //comments added in the meantime are removed together with the post, in a single transaction
+        Integer deletedPosts = transactionTemplate.execute(status -> {
+            commentRepository.deleteChunkByPostId(id, Integer.MAX_VALUE);
+            int deleted = postRepository.deleteRowById(id);
+            //one tombstone for the post, it covers all of its comments
+            if (deleted > 0) {
+                changeFeedService.record(ChangeLogEntry.EntityType.POST, id, id, ChangeLogEntry.Operation.DELETE);
+            }
+            return deleted;
+        });
+        trendingPosts.remove(id);
+        postResponseCache.invalidate(id);
+        return deletedPosts != null && deletedPosts > 0;
+    }
+
+    //reject ids the filter knows are not in the db, before running any query
+    private void checkPostExists(long id) {
+        if (!postIdFilter.mightContain(id)) {
+            throw new ResourceNotFoundException("Post", "id", id);
+        }
+    }
 
     //create a private method --> to enable refactoring of the code --> converts entity to DTO
     private PostDto mapToDTO(Post post) {
 
         //using model mapper 3rd party package
-        PostDto postDto = mapper.map(post, PostDto.class);
+        RequestTimings.start(RequestTimings.Phase.MAPPING);
+        PostDto postDto;
+        try {
+            postDto = mapper.map(post, PostDto.class);
+            postDto.setViews(post.getViews() + postViewCounter.getPending(post.getId()));
+        } finally {
+            RequestTimings.stop();
+        }
 
 //        PostDto postDto = new PostDto();
 //        postDto.setId(post.getId());
@@ -126,7 +281,13 @@ public class PostServiceImpl implements PostService {
     private Post mapToEntity(PostDto postDto) {
 
         //using model mapper 3rd party package
-        Post post = mapper.map(postDto, Post.class);
+        RequestTimings.start(RequestTimings.Phase.MAPPING);
+        Post post;
+        try {
+            post = mapper.map(postDto, Post.class);
+        } finally {
+            RequestTimings.stop();
+        }
 
 //        Post post = new Post();
 //        post.setTitle(postDto.getTitle());
@@ -1,5 +1,7 @@
 package com.springboot.blog.utils;
 
+import java.util.Set;
+
 public class AppConstants {
 
     //create constants that we will reuse throughout the application
@@ -7,5 +9,11 @@ public class AppConstants {
     public  static final String DEFAULT_PAGE_SIZE = "10";
     public static final String DEFAULT_SORT_BY = "id";
     public static final String DEFAULT_SORT_DIR = "asc";
+    public static final String DEFAULT_TRENDING_LIMIT = "10";
+    public static final String DEFAULT_PROFILING_DURATION_SECONDS = "30";
+    public static final String DEFAULT_CHANGE_FEED_LIMIT = "100";
+
+    //fields the post list can be sorted by, each one is backed by a (field, id) index on the posts table
+    public static final Set<String> POST_SORT_FIELDS = Set.of("id", "title", "views");
 
 }
@@ -0,0 +1,67 @@
+package com.springboot.blog.benchmark;
+
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.service.CommentService;
+import com.springboot.blog.service.PostService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//comment write throughput with one transaction per comment against the write-behind group commit
+//the embedded H2 commits without an fsync, so this only shows the cpu/round trip side of the gain,
+//on MySQL (innodb_flush_log_at_trx_commit=1) every saved commit also saves a log flush
+//(the per comment baseline can see a few duplicate key errors on change_log: H2 2.1 hands out duplicate identity
+//values under concurrent inserts, mysql's auto_increment doesn't. the single writer thread never hits it)
+//opt-in, run with: mvn test -Dbenchmark=true -Dtest=CommentWriteBehindBenchmarkTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = "app.comment-write-behind.enabled=true")
+class CommentWriteBehindBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentWriteBehindBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration DURATION = Duration.ofSeconds(5);
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Test
+    void groupCommitThroughput() throws Exception {
+        PostDto postDto = new PostDto();
+        postDto.setTitle("write-behind benchmark");
+        postDto.setDescription("description");
+        postDto.setContent("content");
+        long postId = postService.createPost(postDto).getId();
+
+        Throughput.Operation perComment = () -> commentService.createComment(postId, comment());
+        Throughput.Operation groupCommit = () -> commentService.createCommentAsync(postId, comment()).get();
+
+        Throughput.warmUp(THREADS, WARM_UP, perComment, groupCommit);
+        Throughput.Result perCommentResult = Throughput.measure(THREADS, DURATION, perComment);
+        Throughput.Result groupCommitResult = Throughput.measure(THREADS, DURATION, groupCommit);
+
+        logger.info("transaction per comment: {}", perCommentResult);
+        logger.info("write-behind batches:    {}", groupCommitResult);
+
+        assertEquals(0, groupCommitResult.errors, groupCommitResult.toString());
+        assertTrue(groupCommitResult.opsPerSecond > perCommentResult.opsPerSecond,
+                "no gain from the group commit: " + groupCommitResult + " vs " + perCommentResult);
+    }
+
+    private static CommentDto comment() {
+        return new CommentDto(0, "name", "name@mail.com", "benchmark comment");
+    }
+}
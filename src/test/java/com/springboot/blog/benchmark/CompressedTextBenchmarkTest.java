@@ -0,0 +1,76 @@
+package com.springboot.blog.benchmark;
+
+import com.springboot.blog.entity.converter.CompressedText;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//cost/benefit of compression at rest: stored size, encode (write path, re-encode job) and decode (every read)
+//throughput for a typical post content and a long comment body
+//opt-in, run with: mvn test -Dbenchmark=true -Dtest=CompressedTextBenchmarkTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CompressedTextBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressedTextBenchmarkTest.class);
+
+    private static final int THREADS = 1;
+    private static final Duration WARM_UP = Duration.ofSeconds(2);
+    private static final Duration DURATION = Duration.ofSeconds(3);
+
+    private static final String[] WORDS = ("the a of to and in is it that for on with as this was be by are not but "
+            + "post comment spring boot database query index cache request response latency server client java "
+            + "thread memory performance release version update feature error value table column row write read "
+            + "really think would could should about because people time good great thanks article example")
+            .split(" ");
+
+    @Test
+    void sizeAndThroughput() throws Exception {
+        Map<String, String> texts = new LinkedHashMap<>();
+        texts.put("post content", prose(6_000, 1));
+        texts.put("comment body", prose(1_200, 2));
+
+        for (Map.Entry<String, String> text : texts.entrySet()) {
+            String plain = text.getValue();
+            String stored = CompressedText.encode(plain);
+            assertEquals(plain, CompressedText.decode(stored));
+
+            Throughput.Operation encode = () -> CompressedText.encode(plain);
+            Throughput.Operation decode = () -> CompressedText.decode(stored);
+            Throughput.warmUp(THREADS, WARM_UP, encode, decode);
+            Throughput.Result encoded = Throughput.measure(THREADS, DURATION, encode);
+            Throughput.Result decoded = Throughput.measure(THREADS, DURATION, decode);
+
+            int plainBytes = plain.getBytes(StandardCharsets.UTF_8).length;
+            logger.info("{}: {} -> {} bytes stored ({}%)", text.getKey(), plainBytes, stored.length(),
+                    stored.length() * 100 / plainBytes);
+            logger.info("{} encode: {} ({} MB/s)", text.getKey(), encoded, megabytesPerSecond(encoded, plainBytes));
+            logger.info("{} decode: {} ({} MB/s)", text.getKey(), decoded, megabytesPerSecond(decoded, plainBytes));
+            assertEquals(0, encoded.errors + decoded.errors, text.getKey() + ": " + encoded.firstError + " " + decoded.firstError);
+        }
+    }
+
+    //words drawn at random with punctuation, compresses about like real prose (unlike a repeated sentence)
+    private static String prose(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            int punctuation = random.nextInt(12);
+            text.append(punctuation == 0 ? ". " : punctuation == 1 ? ", " : " ");
+        }
+        return text.toString();
+    }
+
+    private static String megabytesPerSecond(Throughput.Result result, int bytes) {
+        return String.format("%.1f", result.opsPerSecond * bytes / 1e6);
+    }
+}
@@ -0,0 +1,126 @@
+package com.springboot.blog.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.limit.ConcurrencyLimitFilter;
+import com.springboot.blog.limit.ConcurrencyLimits;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//overload: many more clients than the simulated db serves at once, with and without the adaptive limit
+//the latency of the accepted requests is reported per time slice, it has to stay flat across the min rtt probes
+//opt-in, run with: mvn test -Dbenchmark=true -Dtest=ConcurrencyLimitBenchmarkTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ConcurrencyLimitBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitBenchmarkTest.class);
+
+    private static final int CLIENTS = 64;
+    private static final int DB_CAPACITY = 4;
+    private static final long DB_MILLIS = 10;
+    private static final long PROBE_INTERVAL_MILLIS = 2_000;
+    private static final Duration DURATION = Duration.ofSeconds(30);
+    private static final int SLICES = 6;
+
+    //the db serves DB_CAPACITY requests at once in DB_MILLIS (+-20%), everything above waits
+    private final Semaphore db = new Semaphore(DB_CAPACITY, true);
+    private final FilterChain slowDb = (request, response) -> {
+        db.acquireUninterruptibly();
+        try {
+            long jitter = ThreadLocalRandom.current().nextLong(-DB_MILLIS / 5, DB_MILLIS / 5 + 1);
+            Thread.sleep(DB_MILLIS + jitter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            db.release();
+        }
+    };
+
+    @Test
+    void acceptedRequestsKeepAStableP99UnderOverload() throws Exception {
+        ConcurrencyLimits limits = new ConcurrencyLimits(20, 2, 200, PROBE_INTERVAL_MILLIS);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limits, new ObjectMapper(), true,
+                new String[]{"/api/posts/**"}, new String[0], 1);
+
+        Slices unlimited = new Slices();
+        Throughput.Result unlimitedResult = Throughput.measure(CLIENTS, DURATION, () -> {
+            long start = System.nanoTime();
+            slowDb.doFilter(new MockHttpServletRequest("GET", "/api/posts/1"), new MockHttpServletResponse());
+            unlimited.add(start, System.nanoTime() - start);
+        });
+
+        Slices limited = new Slices();
+        Throughput.Result limitedResult = Throughput.measure(CLIENTS, DURATION, () -> {
+            long start = System.nanoTime();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/posts/1"), response, slowDb);
+            if (response.getStatus() != HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                limited.add(start, System.nanoTime() - start);
+            } else {
+                //a client backs off after a 503 instead of retrying in a tight loop
+                Thread.sleep(DB_MILLIS);
+            }
+        });
+
+        double[] unlimitedP99 = unlimited.p99Millis();
+        double[] limitedP99 = limited.p99Millis();
+        logger.info("no limit:      {}, p99 per {} s slice: {}", unlimitedResult, DURATION.getSeconds() / SLICES,
+                Arrays.toString(unlimitedP99));
+        logger.info("vegas limit:   {} (incl. rejects), accepted p99 per slice: {}, limit {}, rejected {}",
+                limitedResult, Arrays.toString(limitedP99), limits.getReadLimit().getLimit(),
+                limits.getReadLimit().getRejected());
+
+        //the first slice is the warm up, the limit starts above the db capacity
+        double steady = limitedP99[1];
+        for (int i = 2; i < SLICES; i++) {
+            assertTrue(limitedP99[i] <= 1.5 * steady, "p99 drifts: " + Arrays.toString(limitedP99));
+        }
+        assertTrue(limitedP99[SLICES - 1] < unlimitedP99[SLICES - 1] / 2,
+                "accepted p99 " + Arrays.toString(limitedP99) + " vs no limit " + Arrays.toString(unlimitedP99));
+    }
+
+    //latencies by the time slice they started in
+    private static class Slices {
+
+        private final long start = System.nanoTime();
+        private final long sliceNanos = DURATION.toNanos() / SLICES;
+        private final List<ConcurrentLinkedQueue<Long>> slices = new ArrayList<>();
+
+        Slices() {
+            for (int i = 0; i < SLICES; i++) {
+                slices.add(new ConcurrentLinkedQueue<>());
+            }
+        }
+
+        void add(long startNanos, long latencyNanos) {
+            int slice = (int) ((startNanos - start) / sliceNanos);
+            slices.get(Math.min(slice, SLICES - 1)).add(latencyNanos);
+        }
+
+        double[] p99Millis() {
+            double[] p99 = new double[SLICES];
+            for (int i = 0; i < SLICES; i++) {
+                long[] sorted = slices.get(i).stream().mapToLong(Long::longValue).sorted().toArray();
+                p99[i] = sorted.length == 0 ? 0
+                        : sorted[(int) Math.ceil(0.99 * sorted.length) - 1] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+            }
+            return p99;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.springboot.blog.benchmark;
+
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.PostService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//read path throughput of a post lookup (read only transaction, select, mapping) without view counting,
+//with the in-memory view counter of getPostById and with a naive row update per view
+//opt-in, run with: mvn test -Dbenchmark=true -Dtest=PostViewCountingBenchmarkTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest
+class PostViewCountingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostViewCountingBenchmarkTest.class);
+
+    private static final int THREADS = 8;
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration DURATION = Duration.ofSeconds(5);
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private ModelMapper mapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void viewCountingBarelyChangesTheReadThroughput() throws Exception {
+        PostDto postDto = new PostDto();
+        postDto.setTitle("view counting benchmark");
+        postDto.setDescription("description");
+        postDto.setContent("content");
+        long id = postService.createPost(postDto).getId();
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+
+        Throughput.Operation lookupOnly = () -> readOnly.executeWithoutResult(status -> lookUp(id));
+        Throughput.Operation counted = () -> readOnly.executeWithoutResult(status -> {
+            lookUp(id);
+            postService.recordPostView(id);
+        });
+        Throughput.Operation naive = () -> transactionTemplate.executeWithoutResult(status -> {
+            lookUp(id);
+            jdbcTemplate.update("update posts set views = views + 1 where id = ?", id);
+        });
+
+        Throughput.warmUp(THREADS, WARM_UP, lookupOnly, counted, naive);
+        Throughput.Result lookupOnlyResult = Throughput.measure(THREADS, DURATION, lookupOnly);
+        Throughput.Result countedResult = Throughput.measure(THREADS, DURATION, counted);
+        Throughput.Result naiveResult = Throughput.measure(THREADS, DURATION, naive);
+
+        logger.info("lookup only:            {}", lookupOnlyResult);
+        logger.info("in-memory view counter: {}", countedResult);
+        logger.info("row update per view:    {}", naiveResult);
+
+        assertTrue(countedResult.opsPerSecond >= 0.8 * lookupOnlyResult.opsPerSecond,
+                "view counting costs more than 20% of the read throughput: " + countedResult + " vs " + lookupOnlyResult);
+    }
+
+    private void lookUp(long id) {
+        mapper.map(postRepository.findById(id).orElseThrow(), PostDto.class);
+    }
+}
@@ -0,0 +1,115 @@
+package com.springboot.blog.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+//closed loop load: `threads` callers run the operation back to back, first for the warm up, then measured
+//good enough to compare variants of the same code path on the same machine, not for absolute numbers
+class Throughput {
+
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    static class Result {
+        final long operations;
+        final long errors;
+        final double opsPerSecond;
+        final double p50Millis;
+        final double p99Millis;
+        //null without errors
+        final Exception firstError;
+
+        Result(long operations, long errors, double opsPerSecond, double p50Millis, double p99Millis, Exception firstError) {
+            this.operations = operations;
+            this.errors = errors;
+            this.opsPerSecond = opsPerSecond;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.firstError = firstError;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f ops/s, p50 %.2f ms, p99 %.2f ms, %d errors", opsPerSecond, p50Millis, p99Millis, errors)
+                    + (firstError == null ? "" : " (first: " + firstError + ")");
+        }
+    }
+
+    //runs every variant for the warm up before measuring any, so the first one doesn't pay for the jit
+    static void warmUp(int threads, Duration warmUp, Operation... operations) throws Exception {
+        for (Operation operation : operations) {
+            run(threads, warmUp, operation);
+        }
+    }
+
+    static Result measure(int threads, Duration duration, Operation operation) throws Exception {
+        return run(threads, duration, operation);
+    }
+
+    private static Result run(int threads, Duration duration, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        AtomicReference<Exception> firstError = new AtomicReference<>();
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(caller(end, operation, firstError)));
+            }
+
+            //per thread: latencies in nanos, the last slot counts the errors
+            long errors = 0;
+            List<long[]> latencies = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                long[] result = future.get();
+                errors += result[result.length - 1];
+                latencies.add(Arrays.copyOf(result, result.length - 1));
+            }
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(all.length, errors, all.length / seconds, percentile(all, 0.50), percentile(all, 0.99),
+                    firstError.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Callable<long[]> caller(long end, Operation operation, AtomicReference<Exception> firstError) {
+        return () -> {
+            long[] latencies = new long[1024];
+            int count = 0;
+            long errors = 0;
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                try {
+                    operation.run();
+                } catch (Exception e) {
+                    firstError.compareAndSet(null, e);
+                    errors++;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - now;
+            }
+            long[] result = Arrays.copyOf(latencies, count + 1);
+            result[count] = errors;
+            return result;
+        };
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+}
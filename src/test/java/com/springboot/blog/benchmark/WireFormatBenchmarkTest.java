@@ -0,0 +1,81 @@
+package com.springboot.blog.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.PostResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//encode and decode time of a page of posts (10 posts with 5 comments each) in the negotiated formats
+//opt-in, run with: mvn test -Dbenchmark=true -Dtest=WireFormatBenchmarkTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class WireFormatBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireFormatBenchmarkTest.class);
+
+    private static final int THREADS = 1;
+    private static final Duration WARM_UP = Duration.ofSeconds(2);
+    private static final Duration DURATION = Duration.ofSeconds(3);
+
+    @Test
+    void encodeAndDecodeTimes() throws Exception {
+        Map<String, ObjectMapper> formats = new LinkedHashMap<>();
+        formats.put("json", new ObjectMapper());
+        formats.put("smile", new ObjectMapper(new SmileFactory()));
+        formats.put("cbor", new ObjectMapper(new CBORFactory()));
+        PostResponse page = page();
+
+        List<Throughput.Operation> operations = new ArrayList<>();
+        for (ObjectMapper mapper : formats.values()) {
+            byte[] bytes = mapper.writeValueAsBytes(page);
+            operations.add(() -> mapper.writeValueAsBytes(page));
+            operations.add(() -> mapper.readValue(bytes, PostResponse.class));
+        }
+        Throughput.warmUp(THREADS, WARM_UP, operations.toArray(new Throughput.Operation[0]));
+
+        int i = 0;
+        for (Map.Entry<String, ObjectMapper> format : formats.entrySet()) {
+            int size = format.getValue().writeValueAsBytes(page).length;
+            Throughput.Result encode = Throughput.measure(THREADS, DURATION, operations.get(i++));
+            Throughput.Result decode = Throughput.measure(THREADS, DURATION, operations.get(i++));
+
+            logger.info("{} ({} bytes) encode: {}", format.getKey(), size, encode);
+            logger.info("{} ({} bytes) decode: {}", format.getKey(), size, decode);
+            assertEquals(0, encode.errors + decode.errors, format.getKey() + ": " + encode.firstError + " " + decode.firstError);
+        }
+    }
+
+    private static PostResponse page() {
+        List<PostDto> posts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            PostDto post = new PostDto();
+            post.setId(i);
+            post.setTitle("Post title " + i);
+            post.setDescription("Description of post " + i);
+            post.setContent("Content of post " + i + ", ".repeat(100));
+            post.setViews(i * 100L);
+            Set<CommentDto> comments = new HashSet<>();
+            for (int j = 0; j < 5; j++) {
+                comments.add(new CommentDto(i * 10L + j, "name " + j, "user" + j + "@mail.com", "comment body " + j));
+            }
+            post.setComments(comments);
+            posts.add(post);
+        }
+        return new PostResponse(posts, 0, 10, 100, 10, false);
+    }
+}
@@ -0,0 +1,135 @@
+package com.springboot.blog.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.TrendingPostDto;
+import com.springboot.blog.service.PostService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HotSetSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private final TrendingPosts trendingPosts = new TrendingPosts(5, 1, 3_600_000, 100, 0.01);
+    //the regular ttl is far shorter than the warm one
+    private final PostResponseCache postResponseCache = new PostResponseCache(100, 1);
+    private final PostService postService = mock(PostService.class);
+
+    @Test
+    void fileFormatRoundTrips() throws Exception {
+        Path path = dir.resolve("hot.snapshot");
+        List<HotSetSnapshot.Entry> entries = List.of(
+                new HotSetSnapshot.Entry(3, 12.5, 1000, body(3)),
+                new HotSetSnapshot.Entry(1, 7.25, 2000, null),
+                new HotSetSnapshot.Entry(2, 0.5, 3000, new byte[0]));
+
+        HotSetSnapshot.write(path, 42, entries);
+        HotSetSnapshot.Contents contents = HotSetSnapshot.read(path);
+
+        assertEquals(42, contents.createdAt);
+        assertEquals(entries.size(), contents.entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            HotSetSnapshot.Entry expected = entries.get(i);
+            HotSetSnapshot.Entry actual = contents.entries.get(i);
+            assertEquals(expected.postId, actual.postId);
+            assertEquals(expected.score, actual.score);
+            assertEquals(expected.renderedAt, actual.renderedAt);
+            assertArrayEquals(expected.body, actual.body);
+        }
+        assertEquals(false, Files.exists(dir.resolve("hot.snapshot.tmp")));
+    }
+
+    @Test
+    void warmUpReseedsTrendingAndKeepsBodiesForTheWarmTtl() throws Exception {
+        Path path = dir.resolve("hot.snapshot");
+        long now = System.currentTimeMillis();
+        HotSetSnapshot.write(path, now, List.of(
+                new HotSetSnapshot.Entry(1, 30, now, body(1)),
+                //rendered too long ago to be trusted, re-read from the db
+                new HotSetSnapshot.Entry(2, 20, now - 120_000, body(2)),
+                new HotSetSnapshot.Entry(3, 10, now, null)));
+        when(postService.getPostsByIds(List.of(2L, 3L))).thenReturn(List.of(post(2), post(3)));
+
+        HotSetSnapshot snapshot = snapshot(path);
+        snapshot.warmUp();
+        Thread.sleep(10);
+
+        assertEquals(List.of(1L, 2L, 3L), trendingIds());
+        assertEquals(30, trendingPosts.getTrending(1).get(0).getScore(), 0.1);
+        for (long id = 1; id <= 3; id++) {
+            assertNotNull(postResponseCache.get(id), "post " + id);
+        }
+        assertArrayEquals(body(1), postResponseCache.get(1).getIdentity());
+    }
+
+    @Test
+    void noSaveBeforeTheOldSnapshotIsLoaded() throws Exception {
+        Path path = dir.resolve("hot.snapshot");
+        long now = System.currentTimeMillis();
+        HotSetSnapshot.write(path, now, List.of(new HotSetSnapshot.Entry(1, 30, now, null),
+                new HotSetSnapshot.Entry(2, 20, now, null)));
+        when(postService.getPostsByIds(anyList())).thenReturn(List.of());
+        trendingPosts.recordView(5);
+        HotSetSnapshot snapshot = snapshot(path);
+
+        snapshot.save();
+        assertEquals(2, HotSetSnapshot.read(path).entries.size());
+
+        snapshot.warmUp();
+        snapshot.save();
+        List<Long> saved = HotSetSnapshot.read(path).entries.stream().map(e -> e.postId).collect(Collectors.toList());
+        assertEquals(List.of(1L, 2L, 5L), saved);
+    }
+
+    @Test
+    void savesWithoutBodiesWhenDisabled() throws Exception {
+        Path path = dir.resolve("hot.snapshot");
+        trendingPosts.recordView(1);
+        HotSetSnapshot snapshot = new HotSetSnapshot(trendingPosts, postResponseCache, postService, new ObjectMapper(),
+                true, path.toString(), 10, false, 60_000);
+        snapshot.warmUpInBackground();
+
+        snapshot.save();
+
+        assertNull(HotSetSnapshot.read(path).entries.get(0).body);
+        verify(postService, never()).getPostsByIds(anyList());
+    }
+
+    private HotSetSnapshot snapshot(Path path) {
+        return new HotSetSnapshot(trendingPosts, postResponseCache, postService, new ObjectMapper(),
+                true, path.toString(), 10, true, 60_000);
+    }
+
+    private List<Long> trendingIds() {
+        return trendingPosts.getTrending(10).stream().map(TrendingPostDto::getPostId).collect(Collectors.toList());
+    }
+
+    private static byte[] body(long id) {
+        return ("{\"id\":" + id + ",\"title\":\"post " + id + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static PostDto post(long id) {
+        PostDto post = new PostDto();
+        post.setId(id);
+        post.setTitle("post " + id);
+        return post;
+    }
+}
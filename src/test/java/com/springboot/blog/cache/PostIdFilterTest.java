@@ -0,0 +1,67 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.entity.id.TimeOrderedIds;
+import com.springboot.blog.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostIdFilterTest {
+
+    //post ids in the db, written by "this" node and by another one
+    private final List<Long> db = new CopyOnWriteArrayList<>();
+    private final TimeOrderedIds otherNode = new TimeOrderedIds(7);
+    private PostRepository postRepository;
+
+    @BeforeEach
+    void setUp() {
+        postRepository = mock(PostRepository.class);
+        when(postRepository.count()).thenAnswer(invocation -> (long) db.size());
+        when(postRepository.findIdsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            return db.stream().filter(id -> id > afterId).sorted().limit(pageable.getPageSize()).collect(Collectors.toList());
+        });
+    }
+
+    @Test
+    void knowsTheIdsOfTheWarmUp() {
+        db.addAll(List.of(1L, 2L, 3L));
+        PostIdFilter filter = new PostIdFilter(postRepository, 1000, 0.001, 2, 0);
+        filter.warmUp();
+
+        assertTrue(filter.mightContain(1) && filter.mightContain(2) && filter.mightContain(3));
+        assertFalse(filter.mightContain(4));
+    }
+
+    @Test
+    void neverMissesAPostOfAnotherNode() throws InterruptedException {
+        PostIdFilter filter = new PostIdFilter(postRepository, 1000, 0.001, 2, 0);
+        filter.warmUp();
+        Thread.sleep(2);
+
+        //created on the other node after the warm up: not in the bits yet, but newer than the last refresh
+        long createdElsewhere = otherNode.next();
+        db.add(createdElsewhere);
+        assertTrue(filter.mightContain(createdElsewhere));
+
+        //the refresh loads it, from then on the bits answer
+        Thread.sleep(2);
+        filter.refresh();
+        assertTrue(filter.mightContain(createdElsewhere));
+
+        //an id from before the refresh that never made it to the db is a definite miss again
+        assertFalse(filter.mightContain(createdElsewhere + 1));
+    }
+}
@@ -0,0 +1,47 @@
+package com.springboot.blog.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PostResponseCacheTest {
+
+    private static final byte[] JSON = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void invalidationOfOnePostDoesNotFailPutsOfOthers() {
+        PostResponseCache cache = new PostResponseCache(100, 60_000);
+        long stamp = cache.stamp(1);
+        long otherStamp = cache.stamp(2);
+
+        cache.invalidate(2);
+
+        assertNotNull(cache.put(1, stamp, JSON));
+        assertNotNull(cache.get(1));
+        assertNull(cache.put(2, otherStamp, JSON));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    void putOfAnInvalidatedPostIsDropped() {
+        PostResponseCache cache = new PostResponseCache(100, 60_000);
+        long stamp = cache.stamp(1);
+
+        cache.invalidate(1);
+
+        assertNull(cache.put(1, stamp, JSON));
+        assertNotNull(cache.put(1, cache.stamp(1), JSON));
+    }
+
+    @Test
+    void putIntoAFullCacheReturnsNull() {
+        PostResponseCache cache = new PostResponseCache(1, 60_000);
+        assertNotNull(cache.put(1, cache.stamp(1), JSON));
+
+        assertNull(cache.put(2, cache.stamp(2), JSON));
+        assertNull(cache.get(2));
+    }
+}
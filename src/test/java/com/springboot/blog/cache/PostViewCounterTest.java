@@ -0,0 +1,97 @@
+package com.springboot.blog.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostViewCounterTest {
+
+    //views per post id as written by the flushes
+    private final Map<Long, Long> db = new HashMap<>();
+    private JdbcTemplate jdbcTemplate;
+    private PostViewCounter counter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> write(invocation.getArgument(1)));
+        counter = new PostViewCounter(jdbcTemplate, 500);
+    }
+
+    @Test
+    void flushWritesTheDeltasOnce() {
+        for (int i = 0; i < 3; i++) {
+            counter.increment(1);
+        }
+        counter.increment(2);
+        assertEquals(3, counter.getPending(1));
+
+        counter.flush();
+        assertEquals(Map.of(1L, 3L, 2L, 1L), db);
+        assertEquals(0, counter.getPending(1));
+
+        //only what was added since the last flush is written
+        counter.increment(1);
+        counter.flush();
+        assertEquals(Map.of(1L, 4L, 2L, 1L), db);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedFlushIsRetried() {
+        counter.increment(1);
+        counter.increment(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new QueryTimeoutException("db down"))
+                .thenAnswer(invocation -> write(invocation.getArgument(1)));
+
+        counter.flush();
+        assertEquals(Map.of(), db);
+        assertEquals(2, counter.getPending(1));
+
+        counter.flush();
+        assertEquals(Map.of(1L, 2L), db);
+        assertEquals(0, counter.getPending(1));
+    }
+
+    @Test
+    void countersOfIdlePostsAreDropped() {
+        counter.increment(1);
+        counter.increment(2);
+        counter.flush();
+        assertEquals(2, counter.getTrackedPostCount());
+
+        //post 2 got no views since the last flush
+        counter.increment(1);
+        counter.flush();
+        assertEquals(1, counter.getTrackedPostCount());
+
+        //a dropped post starts counting again from scratch
+        counter.increment(2);
+        counter.flush();
+        assertEquals(Map.of(1L, 2L, 2L, 2L), db);
+    }
+
+    private int[][] write(Collection<Object[]> updates) {
+        for (Object[] update : updates) {
+            db.merge((Long) update[1], (Long) update[0], Long::sum);
+        }
+        return new int[][]{};
+    }
+}
@@ -0,0 +1,39 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.payload.TrendingPostDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrendingPostsTest {
+
+    @Test
+    void returnsTheHottestPostsFirst() {
+        TrendingPosts trendingPosts = new TrendingPosts(5, 1, 3_600_000, 3, 0.01);
+        trendingPosts.recordView(1);
+        trendingPosts.recordView(2);
+        trendingPosts.recordView(2);
+        trendingPosts.recordView(3);
+        trendingPosts.recordView(3);
+        trendingPosts.recordView(3);
+
+        assertEquals(List.of(3L, 2L), ids(trendingPosts.getTrending(2)));
+    }
+
+    @Test
+    void limitIsClampedToTheCapacity() {
+        TrendingPosts trendingPosts = new TrendingPosts(5, 1, 3_600_000, 2, 0.01);
+        for (long postId = 1; postId <= 5; postId++) {
+            trendingPosts.recordView(postId);
+        }
+
+        assertEquals(2, trendingPosts.getTrending(Integer.MAX_VALUE).size());
+    }
+
+    private static List<Long> ids(List<TrendingPostDto> trending) {
+        return trending.stream().map(TrendingPostDto::getPostId).collect(Collectors.toList());
+    }
+}
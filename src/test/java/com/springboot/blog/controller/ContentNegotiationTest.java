@@ -0,0 +1,149 @@
+package com.springboot.blog.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//JSON by default, Smile and CBOR when asked for with the Accept header
+@SpringBootTest
+@AutoConfigureMockMvc
+class ContentNegotiationTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    private final Map<MediaType, ObjectMapper> mappers = Map.of(
+            MediaType.APPLICATION_JSON, new ObjectMapper(),
+            SMILE, new ObjectMapper(new SmileFactory()),
+            CBOR, new ObjectMapper(new CBORFactory()));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private Post post;
+    private Comment comment;
+
+    @BeforeEach
+    void setUp() {
+        post = new Post();
+        post.setTitle("negotiated " + System.nanoTime());
+        post.setDescription("a post read in every format");
+        post.setContent("content");
+        post = postRepository.save(post);
+
+        comment = new Comment();
+        comment.setName("name");
+        comment.setEmail("user@mail.com");
+        comment.setBody("a comment read in every format");
+        comment.setPost(post);
+        comment = commentRepository.save(comment);
+    }
+
+    @Test
+    void binaryFormatsAreRegisteredOnceAfterJson() {
+        List<HttpMessageConverter<?>> converters = handlerAdapter.getMessageConverters();
+
+        assertEquals(1L, count(converters, MappingJackson2SmileHttpMessageConverter.class));
+        assertEquals(1L, count(converters, MappingJackson2CborHttpMessageConverter.class));
+        assertTrue(converters.stream().noneMatch(converter -> converter.getClass() == MappingJackson2HttpMessageConverter.class),
+                "the default JSON converter is replaced by the timed one");
+        assertTrue(indexOf(converters, MappingJackson2HttpMessageConverter.class)
+                < indexOf(converters, MappingJackson2SmileHttpMessageConverter.class));
+    }
+
+    @Test
+    void postsAreServedInTheAcceptedFormat() throws Exception {
+        for (MediaType mediaType : mappers.keySet()) {
+            PostDto byId = read(get("/api/posts/{id}", post.getId()), mediaType, new TypeReference<PostDto>() {});
+            assertEquals(post.getTitle(), byId.getTitle(), mediaType.toString());
+
+            PostResponse page = read(get("/api/posts").param("pageSize", "100"), mediaType,
+                    new TypeReference<PostResponse>() {});
+            assertTrue(page.getContent().stream().anyMatch(p -> p.getId() == post.getId()), mediaType.toString());
+        }
+    }
+
+    @Test
+    void commentsAreServedInTheAcceptedFormat() throws Exception {
+        for (MediaType mediaType : mappers.keySet()) {
+            List<CommentDto> comments = read(get("/api/posts/{postId}/comments", post.getId()), mediaType,
+                    new TypeReference<List<CommentDto>>() {});
+            assertEquals(List.of(comment.getBody()),
+                    comments.stream().map(CommentDto::getBody).collect(Collectors.toList()), mediaType.toString());
+
+            CommentDto byId = read(get("/api/posts/{postId}/comments/{id}", post.getId(), comment.getId()), mediaType,
+                    new TypeReference<CommentDto>() {});
+            assertEquals(comment.getBody(), byId.getBody(), mediaType.toString());
+        }
+    }
+
+    @Test
+    void jsonIsTheDefault() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/posts/{postId}/comments", post.getId())
+                .header(HttpHeaders.ACCEPT, "*/*")).andExpect(status().isOk()).andReturn();
+
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(
+                MediaType.parseMediaType(result.getResponse().getContentType())));
+    }
+
+    private <T> T read(MockHttpServletRequestBuilder request, MediaType mediaType, TypeReference<T> type) throws Exception {
+        MvcResult result = mockMvc.perform(request.accept(mediaType)).andExpect(status().isOk()).andReturn();
+        MediaType contentType = MediaType.parseMediaType(result.getResponse().getContentType());
+        assertTrue(mediaType.isCompatibleWith(contentType), mediaType + " got " + contentType);
+        return mappers.get(mediaType).readValue(result.getResponse().getContentAsByteArray(), type);
+    }
+
+    private static long count(List<HttpMessageConverter<?>> converters, Class<?> type) {
+        return converters.stream().filter(type::isInstance).count();
+    }
+
+    private static int indexOf(List<HttpMessageConverter<?>> converters, Class<?> type) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (type.isInstance(converters.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
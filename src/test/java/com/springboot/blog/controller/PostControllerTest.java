@@ -0,0 +1,30 @@
+package com.springboot.blog.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostControllerTest {
+
+    @Test
+    void gzipIsAcceptedWithAPositiveQuality() {
+        assertTrue(PostController.acceptsGzip("gzip"));
+        assertTrue(PostController.acceptsGzip("gzip, deflate, br"));
+        assertTrue(PostController.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(PostController.acceptsGzip("gzip; q=0.05"));
+        assertTrue(PostController.acceptsGzip("*"));
+        assertTrue(PostController.acceptsGzip("br, *;q=0.1"));
+    }
+
+    @Test
+    void gzipIsRefusedWhenMissingOrWithZeroQuality() {
+        assertFalse(PostController.acceptsGzip(null));
+        assertFalse(PostController.acceptsGzip("br, deflate"));
+        assertFalse(PostController.acceptsGzip("gzip;q=0"));
+        assertFalse(PostController.acceptsGzip("gzip;q=0.000"));
+        assertFalse(PostController.acceptsGzip("gzip;q=0, *"));
+        assertFalse(PostController.acceptsGzip("*;q=0"));
+        assertFalse(PostController.acceptsGzip("identity"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.springboot.blog.entity.converter;
+
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"app.compression.post-content=true", "app.compression.threshold=100"})
+class PostContentConverterTest {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void longContentIsStoredCompressed() {
+        String content = "Long form post content. ".repeat(40);
+        long id = postRepository.save(post("compressed", content)).getId();
+
+        String stored = jdbcTemplate.queryForObject("select content from posts where id = ?", String.class, id);
+        assertTrue(CompressedText.isEncoded(stored));
+        assertTrue(stored.length() < content.length());
+        assertEquals(content, postRepository.findById(id).orElseThrow().getContent());
+    }
+
+    @Test
+    void shortContentAndOldRowsStayPlain() {
+        long id = postRepository.save(post("short", "short content")).getId();
+        assertFalse(CompressedText.isEncoded(
+                jdbcTemplate.queryForObject("select content from posts where id = ?", String.class, id)));
+
+        //a row written before compression was switched on
+        jdbcTemplate.update("update posts set content = ? where id = ?", "plain old content", id);
+        assertEquals("plain old content", postRepository.findById(id).orElseThrow().getContent());
+    }
+
+    private static Post post(String title, String content) {
+        Post post = new Post();
+        post.setTitle(title);
+        post.setDescription("description");
+        post.setContent(content);
+        return post;
+    }
+}
@@ -0,0 +1,44 @@
+package com.springboot.blog.entity.id;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.service.ServiceRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void refusesToStartWithoutANodeId() {
+        assertThrows(IllegalStateException.class, () -> configure(Map.of()));
+        assertThrows(IllegalStateException.class, () -> configure(Map.of(TimeOrderedIdGenerator.NODE_ID_SETTING, " ")));
+        assertThrows(IllegalStateException.class, () -> configure(Map.of(TimeOrderedIdGenerator.NODE_ID_SETTING, "node-a")));
+        assertThrows(IllegalArgumentException.class, () -> configure(Map.of(TimeOrderedIdGenerator.NODE_ID_SETTING, "16")));
+    }
+
+    @Test
+    void generatesIdsOfTheConfiguredNode() {
+        TimeOrderedIdGenerator generator = configure(Map.of(TimeOrderedIdGenerator.NODE_ID_SETTING, "5"));
+
+        long id = (Long) generator.generate(null, null);
+
+        assertEquals(5, (id >> TimeOrderedIds.SEQUENCE_BITS) & TimeOrderedIds.MAX_NODE_ID);
+    }
+
+    private static TimeOrderedIdGenerator configure(Map<String, Object> settings) {
+        ConfigurationService configurationService = mock(ConfigurationService.class);
+        when(configurationService.getSettings()).thenReturn(settings);
+        ServiceRegistry serviceRegistry = mock(ServiceRegistry.class);
+        when(serviceRegistry.getService(ConfigurationService.class)).thenReturn(configurationService);
+
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        generator.configure(null, new Properties(), serviceRegistry);
+        return generator;
+    }
+}
@@ -0,0 +1,68 @@
+package com.springboot.blog.entity.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedIdsTest {
+
+    //largest integer a javascript number holds exactly
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    @Test
+    void idsAreUniqueAndIncreasingPerThread() throws Exception {
+        TimeOrderedIds ids = new TimeOrderedIds(3);
+        int threads = 8;
+        int perThread = 50_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                long[] generated = new long[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    generated[i] = ids.next();
+                }
+                return generated;
+            }));
+        }
+
+        Set<Long> all = new HashSet<>();
+        for (Future<long[]> future : futures) {
+            long[] generated = future.get();
+            for (int i = 0; i < generated.length; i++) {
+                assertTrue(i == 0 || generated[i] > generated[i - 1]);
+                assertTrue(generated[i] > 0 && generated[i] <= MAX_SAFE_INTEGER);
+                all.add(generated[i]);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread, all.size());
+    }
+
+    @Test
+    void idsCarryTheirCreationTime() {
+        long before = System.currentTimeMillis();
+        long id = new TimeOrderedIds(TimeOrderedIds.MAX_NODE_ID).next();
+
+        //borrowed milliseconds only happen after a burst, a single id is never ahead of the clock
+        long timestamp = TimeOrderedIds.timestampOf(id);
+        assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis());
+    }
+
+    @Test
+    void rejectsNodeIdsThatDontFit() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIds(TimeOrderedIds.MAX_NODE_ID + 1));
+    }
+}
@@ -0,0 +1,59 @@
+package com.springboot.blog.limit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.monitoring.RequestTimings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimits limits = new ConcurrencyLimits(20, 4, 200, 30_000);
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limits, new ObjectMapper(), true,
+            new String[]{"/api/posts/**"}, new String[0], 1);
+
+    @AfterEach
+    void tearDown() {
+        RequestTimings.end();
+    }
+
+    @Test
+    void requestsWithoutSqlAreNoLatencySample() throws Exception {
+        RequestTimings.begin();
+        get((request, response) -> {
+        });
+
+        assertEquals(0, limits.getReadLimit().getMinRttMillis());
+        assertEquals(0, limits.getReadLimit().getInflight());
+    }
+
+    @Test
+    void requestsThatRanSqlAreALatencySample() throws Exception {
+        RequestTimings.begin();
+        get((request, response) -> {
+            RequestTimings.countStatement();
+            sleep(5);
+        });
+
+        assertTrue(limits.getReadLimit().getMinRttMillis() >= 5, "min rtt " + limits.getReadLimit().getMinRttMillis());
+        assertEquals(0, limits.getReadLimit().getInflight());
+    }
+
+    private void get(FilterChain chain) throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/posts/1"), new MockHttpServletResponse(), chain);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.springboot.blog.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//the limit is driven by a simulated db: it serves `capacity` requests at once in baseRtt, everything above that
+//waits in its queue, the clients keep `demand` requests in flight (as far as the limit lets them)
+//the clock is simulated as well, it advances by rtt / inflight per completed request
+class VegasLimitTest {
+
+    private static final long BASE_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long PROBE_INTERVAL_MILLIS = 30_000;
+    private static final int OVERLOAD = Integer.MAX_VALUE;
+
+    private final AtomicLong clock = new AtomicLong();
+    //lowest limit of the last simulate() run
+    private int lowestLimit;
+
+    @Test
+    void settlesJustAboveTheDbCapacity() {
+        VegasLimit limit = limit(50, 4, 500);
+        simulate(limit, 10, BASE_RTT, 5, 1000);
+
+        long rtt = simulate(limit, 10, BASE_RTT, OVERLOAD, 20_000);
+
+        assertTrue(limit.getLimit() >= 10 && limit.getLimit() <= 20, "limit " + limit.getLimit());
+        //the latency stays bounded instead of growing with the offered load
+        assertTrue(rtt <= 2 * BASE_RTT, "rtt " + rtt);
+    }
+
+    @Test
+    void followsTheDbUpAndDown() {
+        VegasLimit limit = limit(20, 4, 500);
+        simulate(limit, 100, BASE_RTT, 5, 1000);
+
+        simulate(limit, 100, BASE_RTT, OVERLOAD, 20_000);
+        assertTrue(limit.getLimit() >= 100, "limit " + limit.getLimit());
+
+        //the db slows down
+        simulate(limit, 10, BASE_RTT, OVERLOAD, 20_000);
+        assertTrue(limit.getLimit() <= 20, "limit " + limit.getLimit());
+    }
+
+    @Test
+    void probesNeverRejectHealthyTraffic() {
+        VegasLimit limit = limit(20, 4, 500);
+
+        //10 simulated minutes, a dozen probes
+        simulate(limit, 100, BASE_RTT, 15, 1_000_000);
+
+        //the limit never went below the demand, so no request of it was rejected
+        assertTrue(lowestLimit >= 20, "limit went down to " + lowestLimit);
+    }
+
+    @Test
+    void relearnsTheMinRttOfASlowerDb() {
+        VegasLimit limit = limit(20, 4, 500);
+        simulate(limit, 10, BASE_RTT, 8, 1000);
+
+        //every query takes twice as long from now on, at first that looks like a queue
+        simulate(limit, 10, 2 * BASE_RTT, 8, 1000);
+        assertTrue(limit.getLimit() < 15, "limit " + limit.getLimit());
+
+        //two probe intervals later the min rtt is the new one, the limit is back above the demand
+        simulate(limit, 10, 2 * BASE_RTT, 8, 30_000);
+        assertEquals(20, limit.getMinRttMillis(), 0.1);
+        assertTrue(limit.getLimit() >= 15, "limit " + limit.getLimit());
+    }
+
+    @Test
+    void fastResponsesWithoutDbWorkDontLowerTheLimit() {
+        VegasLimit limit = limit(25, 4, 500);
+        long dbRtt = TimeUnit.MILLISECONDS.toNanos(5);
+        long fastRtt = TimeUnit.MICROSECONDS.toNanos(100);
+        int concurrency = 12;
+
+        //a healthy db (no queue at 12 in flight), every 5th request is answered from memory
+        int lowest = limit.getLimit();
+        for (int i = 0; i < 100_000; i++) {
+            lowest = Math.min(lowest, limit.getLimit());
+            limit.tryAcquire();
+            boolean fast = i % 5 == 0;
+            if (fast) {
+                limit.releaseWithoutSample();
+            } else {
+                limit.release(dbRtt, concurrency, false);
+            }
+            clock.addAndGet((fast ? fastRtt : dbRtt) / concurrency);
+        }
+
+        assertEquals(5, limit.getMinRttMillis(), 0.1);
+        assertTrue(lowest > concurrency, "limit went down to " + lowest);
+    }
+
+    @Test
+    void failuresShrinkTheLimit() {
+        VegasLimit limit = limit(100, 4, 500);
+        for (int i = 0; i < 10; i++) {
+            limit.release(BASE_RTT, limit.tryAcquire(), true);
+        }
+        assertTrue(limit.getLimit() < 40, "limit " + limit.getLimit());
+    }
+
+    @Test
+    void rejectsOverTheLimit() {
+        VegasLimit limit = limit(4, 1, 10);
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, limit.tryAcquire());
+        }
+
+        assertEquals(0, limit.tryAcquire());
+        assertEquals(4, limit.getInflight());
+        assertEquals(1, limit.getRejected());
+    }
+
+    private VegasLimit limit(int initialLimit, int minLimit, int maxLimit) {
+        return new VegasLimit(initialLimit, minLimit, maxLimit, PROBE_INTERVAL_MILLIS, clock::get);
+    }
+
+    //returns the rtt of the last sample
+    private long simulate(VegasLimit limit, int capacity, long baseRtt, int demand, int samples) {
+        long rtt = 0;
+        lowestLimit = limit.getLimit();
+        for (int i = 0; i < samples; i++) {
+            lowestLimit = Math.min(lowestLimit, limit.getLimit());
+            int inflight = Math.min(limit.getLimit(), demand);
+            rtt = baseRtt * Math.max(capacity, inflight) / capacity;
+            limit.tryAcquire();
+            limit.release(rtt, inflight, false);
+            clock.addAndGet(rtt / inflight);
+        }
+        return rtt;
+    }
+}
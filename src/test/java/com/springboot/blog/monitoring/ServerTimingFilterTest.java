@@ -0,0 +1,129 @@
+package com.springboot.blog.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletResponse;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerTimingFilterTest {
+
+    private final ServerTimingFilter filter = new ServerTimingFilter(true, 500);
+
+    @Test
+    void timesSynchronousRequests() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            RequestTimings.start(RequestTimings.Phase.DB);
+            sleep(20);
+            RequestTimings.stop();
+            res.getOutputStream().write('x');
+        });
+
+        String header = response.getHeader("Server-Timing");
+        assertNotNull(header);
+        assertTrue(duration(header, "db") >= 20, header);
+        assertTrue(duration(header, "total") >= 20, header);
+    }
+
+    @Test
+    void serializationThatStreamsIntoTheBodyIsReported() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //like jackson writing into the response stream, the first bytes go out long before it is done
+        filter.doFilter(request, response, (req, res) -> {
+            RequestTimings.start(RequestTimings.Phase.SERIALIZATION);
+            res.getOutputStream().write('{');
+            sleep(20);
+            res.getOutputStream().write('}');
+            RequestTimings.stop();
+        });
+
+        String header = response.getHeader("Server-Timing");
+        assertNotNull(header);
+        assertTrue(duration(header, "ser") >= 20, header);
+        assertEquals("{}", response.getContentAsString());
+        assertEquals(2, response.getContentLength());
+    }
+
+    @Test
+    void explicitFlushesAreSentRightAway() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/1/comments/stream");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //SSE: every event is flushed, it can't wait for the end of the request
+        filter.doFilter(request, response, (req, res) -> {
+            res.getOutputStream().write('a');
+            res.flushBuffer();
+            assertEquals("a", response.getContentAsString());
+            assertNotNull(response.getHeader("Server-Timing"));
+            res.getOutputStream().write('b');
+        });
+
+        assertEquals("ab", response.getContentAsString());
+    }
+
+    @Test
+    void asyncRequestsAreTimedUntilTheAsyncDispatchWritesTheResponse() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/posts/1/comments");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //the first dispatch only starts the async processing, e.g. hands the comment to the write-behind batch
+        filter.doFilter(request, response, (req, res) -> req.startAsync(req, res));
+        assertNull(response.getHeader("Server-Timing"));
+
+        sleep(50);
+
+        //the async dispatch serializes the result on another thread, into the response handed to startAsync
+        ServletResponse asyncResponse = request.getAsyncContext().getResponse();
+        request.setAsyncStarted(false);
+        request.setDispatcherType(DispatcherType.ASYNC);
+        Thread dispatch = new Thread(() -> {
+            try {
+                filter.doFilter(request, asyncResponse, (req, res) -> {
+                    RequestTimings.start(RequestTimings.Phase.SERIALIZATION);
+                    sleep(10);
+                    RequestTimings.stop();
+                    res.getOutputStream().write('x');
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        dispatch.start();
+        dispatch.join();
+        request.getAsyncContext().complete();
+
+        String header = response.getHeader("Server-Timing");
+        assertNotNull(header);
+        assertTrue(duration(header, "total") >= 60, header);
+        assertTrue(duration(header, "ser") >= 10, header);
+        assertEquals("x", response.getContentAsString());
+    }
+
+    private static double duration(String header, String metric) {
+        Matcher matcher = Pattern.compile("\\b" + metric + ";dur=([0-9.]+)").matcher(header);
+        assertTrue(matcher.find(), header);
+        return Double.parseDouble(matcher.group(1));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//the binary encodings offered through content negotiation have to round trip and be more compact than JSON
+class WireFormatTest {
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+
+    @Test
+    void binaryFormatsRoundTripAndAreSmallerThanJson() throws Exception {
+        PostResponse page = page();
+        byte[] jsonBytes = json.writeValueAsBytes(page);
+
+        for (ObjectMapper binary : List.of(smile, cbor)) {
+            byte[] bytes = binary.writeValueAsBytes(page);
+
+            assertEquals(page, binary.readValue(bytes, PostResponse.class));
+            assertTrue(bytes.length < jsonBytes.length,
+                    binary.getFactory().getFormatName() + " " + bytes.length + " bytes vs JSON " + jsonBytes.length);
+        }
+    }
+
+    private static PostResponse page() {
+        List<PostDto> posts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            PostDto post = new PostDto();
+            post.setId(i);
+            post.setTitle("Post title " + i);
+            post.setDescription("Description of post " + i);
+            post.setContent("Content of post " + i);
+            post.setViews(i * 100L);
+            Set<CommentDto> comments = new HashSet<>();
+            for (int j = 0; j < 5; j++) {
+                comments.add(new CommentDto(i * 10L + j, "name " + j, "user" + j + "@mail.com", "comment body " + j));
+            }
+            post.setComments(comments);
+            posts.add(post);
+        }
+        return new PostResponse(posts, 0, 10, 100, 10, false);
+    }
+}
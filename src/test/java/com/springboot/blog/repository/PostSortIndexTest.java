@@ -0,0 +1,30 @@
+package com.springboot.blog.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static com.springboot.blog.utils.AppConstants.POST_SORT_FIELDS;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//every allowed sort of the post list has to be answered by an index scan, not by sorting the table
+//only ascending is checked: H2 can't scan an index backwards, MySQL/InnoDB serves the descending sorts
+//from the same (field, id) indexes with a backward index scan
+@SpringBootTest
+class PostSortIndexTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void everySortFieldIsIndexSorted() {
+        for (String field : POST_SORT_FIELDS) {
+            String orderBy = field.equals("id") ? "id" : field + ", id";
+            String plan = jdbcTemplate.queryForObject(
+                    "explain select * from posts order by " + orderBy + " limit 10 offset 20", String.class);
+
+            assertTrue(plan.contains("index sorted"), "no index for order by " + orderBy + ":\n" + plan);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.ChangeLogEntry;
+import com.springboot.blog.payload.ChangeDto;
+import com.springboot.blog.payload.ChangeFeedResponse;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.service.ChangeFeedService;
+import com.springboot.blog.service.CommentService;
+import com.springboot.blog.service.PostService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//the replica's change log never catches up: replica connections see an empty change_log table of their own,
+//every other table is the primary's (found through the schema search path)
+@SpringBootTest(properties = {
+        "spring.datasource.url = jdbc:h2:mem:change-feed;MODE=MySQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.datasource.replica.url = jdbc:h2:mem:change-feed;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;"
+                + "INIT=create schema if not exists lagging\\\\;"
+                + "create table if not exists lagging.change_log (seq bigint primary key, entity_type varchar(10) not null, "
+                + "entity_id bigint not null, post_id bigint not null, operation varchar(10) not null, "
+                + "changed_at timestamp not null)\\\\;"
+                + "set schema lagging\\\\;set schema_search_path lagging, public",
+        "app.change-feed.settle-ms = 200"
+})
+class ChangeFeedServiceImplTest {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void returnsTheChangesAfterTheToken() {
+        long since = head();
+
+        PostDto post = postService.createPost(postDto("content"));
+        postService.updatePost(postDto("new content"), post.getId());
+        CommentDto comment = commentService.createComment(post.getId(), new CommentDto(0, "name", "name@mail.com", "body"));
+        postService.deletePostById(post.getId());
+
+        ChangeFeedResponse first = changeFeedService.getChanges(since, 3);
+        assertEquals(List.of("POST CREATE", "POST UPDATE", "COMMENT CREATE"), describe(first.getChanges()));
+        assertEquals(comment.getId(), first.getChanges().get(2).getId());
+        assertTrue(first.isHasMore());
+
+        ChangeFeedResponse second = changeFeedService.getChanges(first.getNextToken(), 3);
+        assertEquals(List.of("POST DELETE"), describe(second.getChanges()));
+        assertFalse(second.isHasMore());
+
+        assertTrue(changeFeedService.getChanges(second.getNextToken(), 3).getChanges().isEmpty());
+    }
+
+    @Test
+    void stopsInFrontOfANewGapUntilItSettles() throws Exception {
+        long since = head();
+
+        //seq since + 1 is missing, as if its transaction was committing right now
+        //the entry behind it is old by the writer's clock, that doesn't matter
+        insertEntry(since + 2, new Timestamp(System.currentTimeMillis() - 60_000));
+        ChangeFeedResponse response = changeFeedService.getChanges(since, 10);
+        assertTrue(response.getChanges().isEmpty());
+        assertEquals(since, response.getNextToken());
+        assertTrue(response.isHasMore());
+
+        //still missing after the settle time, a failed commit, it is skipped
+        Thread.sleep(300);
+        response = changeFeedService.getChanges(since, 10);
+        assertEquals(since + 2, response.getNextToken());
+    }
+
+    @Test
+    void longTransactionsAreNotSkipped() throws Exception {
+        long since = head();
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Thread longTransaction = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            changeFeedService.record(ChangeLogEntry.EntityType.POST, 42, 42, ChangeLogEntry.Operation.UPDATE);
+            recorded.countDown();
+            await(commit);
+        }));
+        longTransaction.start();
+        recorded.await();
+
+        //commits while the long transaction is still running, well past the settle time
+        PostDto post = postService.createPost(postDto("content"));
+        Thread.sleep(300);
+        ChangeFeedResponse first = changeFeedService.getChanges(since, 10);
+        assertEquals(List.of("POST CREATE"), describe(first.getChanges()));
+        assertEquals(post.getId(), first.getChanges().get(0).getId());
+
+        commit.countDown();
+        longTransaction.join();
+        ChangeFeedResponse second = changeFeedService.getChanges(first.getNextToken(), 10);
+        assertEquals(List.of("POST UPDATE"), describe(second.getChanges()));
+        assertEquals(42, second.getChanges().get(0).getId());
+    }
+
+    @Test
+    void longTransactionsAreNotSkippedWhileTheirFlushWaitsForALock() throws Exception {
+        PostDto locked = postService.createPost(postDto("content"));
+        long since = head();
+
+        //another transaction holds the post's row lock
+        CountDownLatch lockTaken = new CountDownLatch(1);
+        CountDownLatch releaseLock = new CountDownLatch(1);
+        Thread locker = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("update posts set description = 'locked' where id = ?", locked.getId());
+            lockTaken.countDown();
+            await(releaseLock);
+        }));
+        locker.start();
+        lockTaken.await();
+
+        //the update of the entity is only flushed at commit, that flush waits for the lock
+        Thread update = new Thread(() -> transactionTemplate.executeWithoutResult(
+                status -> postService.updatePost(postDto("new content"), locked.getId())));
+        update.start();
+        Thread.sleep(200);
+
+        //commits while the update is stuck in its flush, seen before and after the settle time
+        PostDto post = postService.createPost(postDto("content"));
+        changeFeedService.getChanges(since, 10);
+        Thread.sleep(300);
+        ChangeFeedResponse first = changeFeedService.getChanges(since, 10);
+        assertEquals(List.of("POST CREATE"), describe(first.getChanges()));
+        assertEquals(post.getId(), first.getChanges().get(0).getId());
+
+        releaseLock.countDown();
+        locker.join();
+        update.join();
+        ChangeFeedResponse second = changeFeedService.getChanges(first.getNextToken(), 10);
+        assertEquals(List.of("POST UPDATE"), describe(second.getChanges()));
+        assertEquals(locked.getId(), second.getChanges().get(0).getId());
+    }
+
+    @Test
+    void readsThePrimaryNotTheLaggingReplica() {
+        long since = head();
+
+        PostDto post = postService.createPost(postDto("content"));
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        Long onReplica = readOnly.execute(status -> jdbcTemplate.queryForObject("select count(*) from change_log", Long.class));
+        assertEquals(0L, onReplica);
+
+        ChangeFeedResponse response = changeFeedService.getChanges(since, 10);
+        assertEquals(List.of("POST CREATE"), describe(response.getChanges()));
+        assertEquals(post.getId(), response.getChanges().get(0).getId());
+    }
+
+    private static PostDto postDto(String content) {
+        PostDto postDto = new PostDto();
+        postDto.setTitle("change feed " + System.nanoTime());
+        postDto.setDescription("description");
+        postDto.setContent(content);
+        return postDto;
+    }
+
+    private long head() {
+        Long head = jdbcTemplate.queryForObject("select max(seq) from change_log", Long.class);
+        return head == null ? 0 : head;
+    }
+
+    private void insertEntry(long seq, Timestamp changedAt) {
+        jdbcTemplate.update("insert into change_log (seq, entity_type, entity_id, post_id, operation, changed_at) " +
+                "values (?, 'POST', 1, 1, 'UPDATE', ?)", seq, changedAt);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> describe(List<ChangeDto> changes) {
+        return changes.stream().map(change -> change.getEntityType() + " " + change.getOperation())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,174 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.ChangeFeedService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommentBatchWriterTest {
+
+    private static final long POST_ID = 1;
+
+    //sizes of the saveAll calls that committed
+    private final List<Integer> committedBatchSizes = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private volatile boolean blockWrites;
+
+    private CommentBatchWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        unblock.countDown();
+        writer.stop();
+    }
+
+    @Test
+    void concurrentCommentsShareTransactions() throws Exception {
+        writer = newWriter(1000, 20, 50, 50);
+        List<CompletableFuture<Comment>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(writer.submit(POST_ID, comment("comment " + i)));
+        }
+
+        for (CompletableFuture<Comment> future : futures) {
+            assertNotEquals(0, future.get(5, TimeUnit.SECONDS).getId());
+        }
+        assertEquals(100, writer.getCommittedComments());
+        assertTrue(writer.getCommittedBatches() <= 10, "batches " + writer.getCommittedBatches());
+        assertTrue(committedBatchSizes.stream().allMatch(size -> size <= 20));
+    }
+
+    @Test
+    void aBadCommentOnlyFailsItself() throws Exception {
+        writer = newWriter(1000, 20, 50, 50);
+        List<CompletableFuture<Comment>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(writer.submit(POST_ID, comment(i == 3 ? "bad" : "comment " + i)));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            if (i == 3) {
+                ExecutionException e = assertThrows(ExecutionException.class, futures.get(3)::get);
+                assertTrue(e.getCause() instanceof DataIntegrityViolationException);
+            } else {
+                assertNotEquals(0, futures.get(i).get(5, TimeUnit.SECONDS).getId());
+            }
+        }
+        assertEquals(9, writer.getCommittedComments());
+    }
+
+    @Test
+    void aFullQueueRejectsRightAway() throws Exception {
+        writer = newWriter(2, 1, 0, 10);
+        blockWrites = true;
+
+        //1 comment stuck in the writer, 2 in the queue, the next one finds the queue full
+        List<CompletableFuture<Comment>> accepted = new ArrayList<>();
+        BlogAPIException rejected = null;
+        for (int i = 0; i < 10 && rejected == null; i++) {
+            try {
+                accepted.add(writer.submit(POST_ID, comment("comment " + i)));
+                Thread.sleep(20);
+            } catch (BlogAPIException e) {
+                rejected = e;
+            }
+        }
+        assertTrue(rejected != null && rejected.getStatus() == HttpStatus.SERVICE_UNAVAILABLE);
+        assertEquals(1, writer.getRejectedComments());
+
+        //the accepted ones are still written once the db catches up
+        unblock.countDown();
+        for (CompletableFuture<Comment> future : accepted) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void callbacksDontRunOnTheWriterThread() throws Exception {
+        writer = newWriter(1000, 20, 0, 50);
+        blockWrites = true;
+        CompletableFuture<String> thread = writer.submit(POST_ID, comment("comment"))
+                .thenApply(comment -> Thread.currentThread().getName());
+
+        //the comment is written after the callback got attached, so the callback runs where the future completes
+        unblock.countDown();
+        assertTrue(thread.get(5, TimeUnit.SECONDS).startsWith("comment-batch-callback-"), thread.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private CommentBatchWriter newWriter(int queueCapacity, int maxBatchSize, long maxDelayMillis, long enqueueTimeoutMillis) {
+        Post post = new Post();
+        post.setId(POST_ID);
+        PostRepository postRepository = mock(PostRepository.class);
+        when(postRepository.findAllById(anyIterable())).thenReturn(List.of(post));
+
+        //saveAll returns managed copies with the generated ids (like a merge, the submitted instances stay as they are)
+        //and fails the whole batch if it has a bad comment
+        CommentRepository commentRepository = mock(CommentRepository.class);
+        when(commentRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            if (blockWrites) {
+                unblock.await();
+            }
+            List<Comment> comments = new ArrayList<>();
+            for (Comment comment : (Collection<Comment>) invocation.getArgument(0)) {
+                Comment saved = comment(comment.getBody());
+                saved.setId(ids.incrementAndGet());
+                saved.setPost(comment.getPost());
+                comments.add(saved);
+            }
+            if (comments.stream().anyMatch(comment -> comment.getBody().equals("bad"))) {
+                throw new DataIntegrityViolationException("fk violation");
+            }
+            committedBatchSizes.add(comments.size());
+            return comments;
+        });
+
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        CommentBatchWriter writer = new CommentBatchWriter(commentRepository, postRepository, transactionTemplate,
+                mock(ChangeFeedService.class), true, queueCapacity, maxBatchSize, maxDelayMillis, enqueueTimeoutMillis, 2);
+        writer.start();
+        return writer;
+    }
+
+    private static Comment comment(String body) {
+        Comment comment = new Comment();
+        comment.setName("name");
+        comment.setEmail("name@mail.com");
+        comment.setBody(body);
+        return comment;
+    }
+}
@@ -0,0 +1,60 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.service.CommentService;
+import com.springboot.blog.service.PostService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.comment-write-behind.enabled = true")
+class CommentServiceImplTest {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Test
+    void writeBehindIgnoresClientSuppliedIds() throws Exception {
+        PostDto post = createPost();
+
+        CommentDto created = commentService.createCommentAsync(post.getId(),
+                new CommentDto(12345, "name", "name@mail.com", "body")).get(5, TimeUnit.SECONDS);
+
+        assertNotEquals(12345, created.getId());
+        assertTrue(commentRepository.findById(created.getId()).isPresent());
+        assertEquals("body", commentService.getCommentById(post.getId(), created.getId()).getBody());
+    }
+
+    @Test
+    void directWritesIgnoreClientSuppliedIds() {
+        PostDto post = createPost();
+
+        CommentDto created = commentService.createComment(post.getId(),
+                new CommentDto(12345, "name", "name@mail.com", "body"));
+
+        assertNotEquals(12345, created.getId());
+        assertTrue(commentRepository.findById(created.getId()).isPresent());
+    }
+
+    private PostDto createPost() {
+        PostDto postDto = new PostDto();
+        postDto.setTitle("commented " + System.nanoTime());
+        postDto.setDescription("a post to comment on");
+        postDto.setContent("content");
+        return postService.createPost(postDto);
+    }
+}
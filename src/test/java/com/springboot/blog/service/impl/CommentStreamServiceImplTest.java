@@ -0,0 +1,145 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.cache.PostIdFilter;
+import com.springboot.blog.event.CommentCreatedEvent;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommentStreamServiceImplTest {
+
+    private static final long POST_ID = 1;
+
+    //clients that stopped reading: every write blocks until the test ends
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final BlockingQueue<Object> delivered = new LinkedBlockingQueue<>();
+
+    @Test
+    void stuckSubscribersDontStopTheFanOut() throws Exception {
+        List<SseEmitter> emitters = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            emitters.add(new BlockingEmitter());
+        }
+        emitters.add(new RecordingEmitter());
+        CommentStreamServiceImpl service = newService(emitters, 200);
+        try {
+            for (int i = 0; i < emitters.size(); i++) {
+                service.subscribe(POST_ID);
+            }
+
+            //the stuck writes pin all 4 sender threads at first, the write timeout abandons them
+            //and replaces their threads until the healthy subscriber gets the comment
+            service.onCommentCreated(new CommentCreatedEvent(POST_ID, comment(1)));
+            Object first = null;
+            for (int round = 0; round < 10 && first == null; round++) {
+                first = delivered.poll(300, TimeUnit.MILLISECONDS);
+                service.abandonStuckWrites();
+            }
+            assertNotNull(first);
+            for (int round = 0; round < 10 && service.getAbandonedSubscribers() < 8; round++) {
+                Thread.sleep(300);
+                service.abandonStuckWrites();
+            }
+            assertEquals(8, service.getAbandonedSubscribers());
+            assertEquals(1, service.getSubscriberCount());
+
+            //from now on the fan-out isn't held up by the stuck writes anymore
+            service.onCommentCreated(new CommentCreatedEvent(POST_ID, comment(2)));
+            assertNotNull(delivered.poll(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void timeoutsAreCompletedByASenderThread() throws Exception {
+        TimingOutEmitter emitter = new TimingOutEmitter();
+        CommentStreamServiceImpl service = newService(List.of(emitter), 200);
+        try {
+            service.subscribe(POST_ID);
+
+            emitter.timeoutCallback.run();
+
+            assertEquals(0, service.getSubscriberCount());
+            Thread completedBy = emitter.completedBy.poll(1, TimeUnit.SECONDS);
+            assertNotNull(completedBy);
+            assertNotEquals(Thread.currentThread(), completedBy);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private CommentStreamServiceImpl newService(List<SseEmitter> emitters, long writeTimeoutMillis) {
+        PostRepository postRepository = mock(PostRepository.class);
+        when(postRepository.existsById(anyLong())).thenReturn(true);
+        PostIdFilter postIdFilter = mock(PostIdFilter.class);
+        when(postIdFilter.mightContain(anyLong())).thenReturn(true);
+
+        //fewer sender threads than stuck subscribers
+        return new CommentStreamServiceImpl(postRepository, postIdFilter, 4, writeTimeoutMillis, 64, 60_000,
+                CommentStreamServiceImpl.OverflowPolicy.DISCONNECT) {
+            private int next;
+
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                return emitters.get(next++);
+            }
+        };
+    }
+
+    private static CommentDto comment(long id) {
+        return new CommentDto(id, "name", "name@mail.com", "body");
+    }
+
+    private class BlockingEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class TimingOutEmitter extends SseEmitter {
+        private final BlockingQueue<Thread> completedBy = new LinkedBlockingQueue<>();
+        private Runnable timeoutCallback;
+
+        @Override
+        public synchronized void onTimeout(Runnable callback) {
+            timeoutCallback = callback;
+            super.onTimeout(callback);
+        }
+
+        @Override
+        public synchronized void complete() {
+            completedBy.add(Thread.currentThread());
+            super.complete();
+        }
+    }
+
+    private class RecordingEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) {
+            delivered.add(builder);
+        }
+    }
+}
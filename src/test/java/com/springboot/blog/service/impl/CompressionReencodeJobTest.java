@@ -0,0 +1,63 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.entity.converter.CompressedText;
+import com.springboot.blog.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//case insensitive columns, like mysql's default collation
+@SpringBootTest(properties = "spring.datasource.url = "
+        + "jdbc:h2:mem:reencode;MODE=MySQL;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+class CompressionReencodeJobTest {
+
+    private static final String CONTENT = "a post that is long enough to be compressed";
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void editsMadeWhileEncodingAreKept() {
+        Post untouched = postRepository.save(post());
+        Post edited = postRepository.save(post());
+
+        //an edit that only changes the case lands between the job's read and its update
+        CompressionReencodeJob job = new CompressionReencodeJob(jdbcTemplate, transactionTemplate, true, true, false, 10, 500) {
+            @Override
+            String encode(String value) {
+                jdbcTemplate.update("update posts set content = ? where id = ?", CONTENT.toUpperCase(), edited.getId());
+                return super.encode(value);
+            }
+        };
+        job.reencodeNextChunk();
+
+        String stored = content(untouched.getId());
+        assertTrue(CompressedText.isEncoded(stored));
+        assertEquals(CONTENT, CompressedText.decode(stored));
+        assertEquals(CONTENT.toUpperCase(), content(edited.getId()));
+    }
+
+    private String content(long id) {
+        return jdbcTemplate.queryForObject("select content from posts where id = ?", String.class, id);
+    }
+
+    private static Post post() {
+        Post post = new Post();
+        post.setTitle("reencoded " + System.nanoTime());
+        post.setDescription("a post to compress");
+        post.setContent(CONTENT);
+        return post;
+    }
+}
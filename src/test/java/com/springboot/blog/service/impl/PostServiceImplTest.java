@@ -0,0 +1,66 @@
+package com.springboot.blog.service.impl;
+
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.service.PostService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "app.delete.max-bulk-size = 3")
+class PostServiceImplTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Test
+    void bulkDeleteDeletesTheKnownIds() {
+        PostDto first = postService.createPost(postDto());
+        PostDto second = postService.createPost(postDto());
+
+        assertEquals(2, postService.deletePostsByIds(new ArrayList<>(List.of(first.getId(), second.getId(), -1L))));
+    }
+
+    @Test
+    void bulkDeleteRejectsTooManyIds() {
+        BlogAPIException exception = assertThrows(BlogAPIException.class,
+                () -> postService.deletePostsByIds(new ArrayList<>(List.of(1L, 2L, 3L, 4L))));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void bulkDeleteRejectsNullIds() {
+        PostDto post = postService.createPost(postDto());
+
+        BlogAPIException exception = assertThrows(BlogAPIException.class,
+                () -> postService.deletePostsByIds(Arrays.asList(post.getId(), null)));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        //nothing was deleted
+        assertEquals(post.getTitle(), postService.getPostById(post.getId()).getTitle());
+    }
+
+    @Test
+    void trendingRejectsLimitsBelowOne() {
+        for (int limit : new int[]{0, -1}) {
+            BlogAPIException exception = assertThrows(BlogAPIException.class,
+                    () -> postService.getTrendingPosts(limit));
+            assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        }
+    }
+
+    private static PostDto postDto() {
+        PostDto postDto = new PostDto();
+        postDto.setTitle("bulk " + System.nanoTime());
+        postDto.setDescription("a post to delete in bulk");
+        postDto.setContent("content");
+        return postDto;
+    }
+}